@@ -0,0 +1,102 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.example.mobilyecommerce.model.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of access tokens per {@code token.signing.algorithm}. {@code signJjwt} builds the
+ * same claim set with {@code Jwts.builder()}, the baseline for the specialised encoder.
+ * <p>
+ * The setup prints the encoded size of each algorithm's token, the other number that matters when picking one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenBenchmark {
+
+    @Param({"HS256", "HS384", "HS512", "ES256", "RS256"})
+    public JwtToken.Algorithm algorithm;
+
+    private AccessTokenEncoder encoder;
+    private Key signingKey;
+    private SignatureAlgorithm jwa;
+    private JwtParser parser;
+    private AuthenticatedUser user;
+    private long issuedAt;
+    private long expiresAt;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwa = SignatureAlgorithm.forName(algorithm.name());
+        Key verificationKey;
+        if (algorithm.isHmac()) {
+            signingKey = Keys.secretKeyFor(jwa);
+            verificationKey = signingKey;
+        } else {
+            KeyPair pair = Keys.keyPairFor(jwa);
+            signingKey = pair.getPrivate();
+            verificationKey = pair.getPublic();
+        }
+
+        encoder = new AccessTokenEncoder(algorithm, "bench", signingKey);
+        parser = Jwts.parserBuilder().setSigningKey(verificationKey).build();
+        user = AuthenticatedUser.of(42L, "customer@example.com", List.of(UserRole.CUSTOMER));
+        issuedAt = Instant.now().getEpochSecond();
+        expiresAt = issuedAt + 900;
+        token = encoder.encode(user, 3, issuedAt, expiresAt);
+
+        System.out.printf("%n# %s access token: %d bytes%n", algorithm, token.length());
+    }
+
+    @Benchmark
+    public String sign() {
+        return encoder.encode(user, 3, issuedAt, expiresAt);
+    }
+
+    @Benchmark
+    public String signJjwt() {
+        return Jwts.builder()
+                .setHeaderParam("kid", "bench")
+                .setSubject("Mobily.cloud")
+                .claim(AccessTokenEncoder.CLAIM_TYPE, AccessTokenEncoder.ACCESS_TYPE)
+                .claim(AccessTokenEncoder.CLAIM_USER_ID, user.id())
+                .claim(AccessTokenEncoder.CLAIM_USERNAME, user.username())
+                .claim(AccessTokenEncoder.CLAIM_ROLES, List.of(UserRole.CUSTOMER.name()))
+                .claim(AccessTokenEncoder.CLAIM_EPOCH, 3L)
+                .setIssuedAt(new Date(issuedAt * 1000))
+                .setExpiration(new Date(expiresAt * 1000))
+                .signWith(signingKey, jwa)
+                .compact();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+}
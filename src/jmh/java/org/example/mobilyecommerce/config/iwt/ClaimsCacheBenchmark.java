@@ -0,0 +1,81 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.model.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three ways {@link TokenHandler#checkToken} can get at a token's claims:
+ * a {@link VerifiedTokenCache} hit, a {@link VerifiedClaimsCache} hit, and a full HS512 verify and parse.
+ * Each includes the SHA-256 digest every lookup starts with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClaimsCacheBenchmark {
+
+    private String token;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokenCache;
+    private VerifiedClaimsCache verifiedClaimsCache;
+
+    @Setup
+    public void setUp() {
+        SecretKey key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        AccessTokenEncoder encoder = new AccessTokenEncoder(JwtToken.Algorithm.HS512, "bench", key);
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+        AuthenticatedUser user = AuthenticatedUser.of(42L, "customer@example.com", List.of(UserRole.CUSTOMER));
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusSeconds(3600);
+        token = encoder.encode(user, 3, now.getEpochSecond(), expiresAt.getEpochSecond());
+
+        JwtToken jwtToken = new JwtToken();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        verifiedTokenCache = new VerifiedTokenCache(jwtToken, meterRegistry);
+        verifiedClaimsCache = new VerifiedClaimsCache(jwtToken, meterRegistry);
+
+        TokenDigest digest = TokenDigest.of(token);
+        verifiedTokenCache.put(digest, new VerifiedTokenCache.VerifiedToken(user, user.id(), 3, expiresAt, false));
+        verifiedClaimsCache.put(digest, new VerifiedClaimsCache.VerifiedClaims(user, 3, expiresAt));
+    }
+
+    @Benchmark
+    public Optional<VerifiedTokenCache.VerifiedToken> verifiedTokenHit() {
+        return verifiedTokenCache.get(TokenDigest.of(token));
+    }
+
+    @Benchmark
+    public Optional<VerifiedClaimsCache.VerifiedClaims> claimsCacheHit() {
+        return verifiedClaimsCache.get(TokenDigest.of(token));
+    }
+
+    @Benchmark
+    public Claims verifyAndParse() {
+        TokenDigest.of(token);
+        return parser.parseClaimsJws(token).getBody();
+    }
+}
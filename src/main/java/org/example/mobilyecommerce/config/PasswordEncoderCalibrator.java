@@ -0,0 +1,91 @@
+package org.example.mobilyecommerce.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Picks the bcrypt work factor for this host at startup.
+ * <p>
+ * Every +1 of strength doubles the cost, so one timed hash at the minimum strength is enough to find the
+ * highest strength that still fits {@code password-hashing.target-duration}. Hashes created with a lower
+ * strength report {@code upgradeEncoding() == true} and are rewritten on the next successful login.
+ * <p>
+ * Each node calibrates on its own, so a fleet of mixed hardware ends up with different targets. Set
+ * {@code password-hashing.strength} there to give every node the same one.
+ */
+@Slf4j
+public final class PasswordEncoderCalibrator {
+
+    private static final String BCRYPT_ID = "bcrypt";
+    private static final int SAMPLES = 3;
+
+    private PasswordEncoderCalibrator() {
+    }
+
+    public static PasswordEncoder calibrated(PasswordHashing config) {
+        int strength = config.getStrength() != null ? config.getStrength() : measureStrength(config);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT_ID,
+                Map.of(BCRYPT_ID, new TargetStrengthBCryptPasswordEncoder(strength)));
+        // أي hash بـ id تاني (قديم) يتقارن بالـ encoders الافتراضية ويتحدث بعد أول login
+        encoder.setDefaultPasswordEncoderForMatches(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        return encoder;
+    }
+
+    private static int measureStrength(PasswordHashing config) {
+        int min = config.getMinStrength();
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(min);
+        probe.encode("calibration-warm-up");
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-sample-" + i);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long target = config.getTargetDuration().toNanos();
+        int strength = min;
+        long predicted = best;
+        while (strength < config.getMaxStrength() && predicted * 2 <= target) {
+            predicted *= 2;
+            strength++;
+        }
+
+        log.info("🔐 Password hashing calibrated: bcrypt strength {} (~{} ms per hash, target {} ms)",
+                strength, predicted / 1_000_000, config.getTargetDuration().toMillis());
+        return strength;
+    }
+
+    /**
+     * Requests a rehash only when the stored cost is below the target. Never downgrading means two nodes
+     * with different targets can't keep rewriting the same hash back and forth.
+     */
+    static class TargetStrengthBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+        private final int strength;
+
+        TargetStrengthBCryptPasswordEncoder(int strength) {
+            super(strength);
+            this.strength = strength;
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            // الصيغة: $2a$10$...
+            if (encodedPassword == null || encodedPassword.length() < 7) {
+                return false;
+            }
+            try {
+                return Integer.parseInt(encodedPassword.substring(4, 6)) < strength;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.mobilyecommerce.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Limits for {@link BoundedPasswordEncoder} and the bcrypt calibration of {@link PasswordEncoderCalibrator}.
+ */
+@ConfigurationProperties(prefix = "password-hashing")
+@Getter
+@Setter
+@Configuration
+public class PasswordHashing {
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 64;
+    private Duration timeout = Duration.ofSeconds(5);
+    private Duration retryAfter = Duration.ofSeconds(2);
+
+    /** Time budget for one hash; the strength is chosen to fit it. */
+    private Duration targetDuration = Duration.ofMillis(80);
+    private int minStrength = 10;
+    private int maxStrength = 16;
+    /** Fixed strength, skips calibration when set. Set it when nodes run on different hardware. */
+    private Integer strength;
+}
@@ -1,8 +1,10 @@
 package org.example.mobilyecommerce.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.example.mobilyecommerce.config.filter.Bucket4jRateLimitFilter;
 import org.example.mobilyecommerce.config.filter.JwtFilter;
+import org.example.mobilyecommerce.config.filter.UserRateLimitFilter;
 import org.example.mobilyecommerce.exception.CustomAccessDeniedHandler;
 import org.example.mobilyecommerce.exception.CustomBasicAuthenticationEntryPoint;
 import org.springframework.context.annotation.Bean;
@@ -13,7 +15,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -31,6 +32,7 @@ public class ProjectSecurityConfig {
 
     private final JwtFilter jwtFilter;
     private final Bucket4jRateLimitFilter bucket4jRateLimitFilter;
+    private final UserRateLimitFilter userRateLimitFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -41,13 +43,14 @@ public class ProjectSecurityConfig {
                         .requestMatchers("/api/v1/auth/login", "/api/v1/auth/signup", "/api/v1/auth/refresh","/api/v1/auth/reset-password",
                                 "/api/files/**","/api/v1/categories/**",
                                 "/api/v1/products/**","/api/v1/home/**","/api/v1/branding/**",
-                                "/api/v1/icons/**").permitAll()
+                                "/api/v1/icons/**", "/.well-known/jwks.json").permitAll()
                         .requestMatchers("/api/invoices","/api/suppliers").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .addFilterBefore(bucket4jRateLimitFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(userRateLimitFilter, JwtFilter.class)
                 .httpBasic(httpBasic -> httpBasic.disable())
                 .formLogin(form -> form.disable());
 
@@ -77,9 +80,13 @@ public class ProjectSecurityConfig {
         return source;
     }
 
+    /**
+     * ✅ التشفير بيتم على thread pool منفصل ومحدود عشان الـ login ما يوقفش باقي الـ APIs
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashing passwordHashing, MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(PasswordEncoderCalibrator.calibrated(passwordHashing),
+                passwordHashing, meterRegistry);
     }
 
     @Bean
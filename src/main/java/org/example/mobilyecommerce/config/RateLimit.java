@@ -0,0 +1,115 @@
+package org.example.mobilyecommerce.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.mobilyecommerce.model.UserRole;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate-limit policies, where the buckets of {@link org.example.mobilyecommerce.config.filter.Bucket4jRateLimitFilter}
+ * and {@link org.example.mobilyecommerce.config.filter.UserRateLimitFilter} live and how many of them a node keeps
+ * in memory.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+@Getter
+@Setter
+@Configuration
+public class RateLimit {
+    private long maxBuckets = 100_000;
+    /**
+     * A bucket idle this long has refilled completely, so dropping it loses nothing.
+     * Keep it at least as long as the slowest refill period.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(15);
+    private Store store = Store.LOCAL;
+    private Sync sync = new Sync();
+    /**
+     * Checked in order, the first policy whose route matches applies. {@code USER}-keyed policies are checked
+     * separately, after authentication, so a request can count against one policy of each kind.
+     */
+    private List<Policy> policies = new ArrayList<>();
+    /**
+     * Optional YAML file with a {@code policies:} list of the same shape. When set it replaces
+     * {@link #policies}, and edits to it are picked up every {@code reload-interval} without a restart.
+     */
+    private String policiesFile;
+    private Duration reloadInterval = Duration.ofSeconds(10);
+
+    public enum Store {
+        /** Buckets on this node only; behind N nodes the effective limit is N times the configured one. */
+        LOCAL,
+        /** Buckets shared by all nodes through the {@code rate_limit_bucket} table. */
+        JDBC
+    }
+
+    /**
+     * Bucket size and refill: {@code refill-tokens} (default: {@code capacity}) every {@code refill-period}.
+     */
+    @Getter
+    @Setter
+    public static class Limit {
+        private long capacity;
+        private Long refillTokens;
+        private Duration refillPeriod;
+
+        public BucketConfiguration toConfiguration() {
+            long tokens = refillTokens != null ? refillTokens : capacity;
+            return BucketConfiguration.builder()
+                    .addLimit(Bandwidth.classic(capacity, Refill.greedy(tokens, refillPeriod)))
+                    .build();
+        }
+    }
+
+    /**
+     * A limit for the routes matching {@code route}, a path pattern checked against the route template,
+     * with optional per-role overrides.
+     */
+    @Getter
+    @Setter
+    public static class Policy extends Limit {
+        private String route = "/**";
+        private KeyStrategy key = KeyStrategy.IP;
+        /**
+         * A principal with several overridden roles gets the first one listed. Only {@code USER}-keyed
+         * policies see a principal, the others are checked before authentication.
+         */
+        private Map<UserRole, Limit> roles = new LinkedHashMap<>();
+    }
+
+    public enum KeyStrategy {
+        /** Client IP plus User-Agent. */
+        IP,
+        /**
+         * User id from the access token's claims, checked once the token is validated. Anonymous requests
+         * are not limited by these policies.
+         */
+        USER,
+        /**
+         * The {@code X-API-Key} header together with the client IP; IP plus User-Agent when it is missing.
+         * Keys are not checked at this stage, so each caller address gets its own bucket per key and a made-up
+         * key buys no more than a made-up User-Agent does.
+         */
+        API_KEY
+    }
+
+    /**
+     * How far a node may consume from a shared bucket before checking in with the store.
+     * A node goes to the store early anyway once its local view of the bucket runs out.
+     */
+    @Getter
+    @Setter
+    public static class Sync {
+        private long maxUnsynchronizedTokens = 5;
+        private Duration maxUnsynchronizedTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.mobilyecommerce.config;
+
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+import org.example.mobilyecommerce.model.Role;
+import org.example.mobilyecommerce.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+
+/**
+ * Immutable snapshot of a {@link User} and its roles, loaded once by {@link UserDetailsServiceConfigImpl}.
+ * <p>
+ * It becomes the principal of the successful login {@code Authentication}, so token issuance reuses the
+ * user found by the provider instead of querying it again.
+ */
+public final class UserAccount implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final AuthenticatedUser principal;
+
+    private UserAccount(Long id, String email, String password, AuthenticatedUser principal) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.principal = principal;
+    }
+
+    public static UserAccount of(User user) {
+        AuthenticatedUser principal = AuthenticatedUser.of(user.getId(), user.getUsername(),
+                user.getRoles().stream().map(Role::getRole).toList());
+        return new UserAccount(user.getId(), user.getEmail(), user.getPassword(), principal);
+    }
+
+    public UserAccount withPassword(String newPassword) {
+        return new UserAccount(id, email, newPassword, principal);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * The same claims-backed principal that access tokens for this user carry.
+     */
+    public AuthenticatedUser toPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return principal.authorities();
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Login is by email.
+     */
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return "UserAccount[id=" + id + ", email=" + email + "]";
+    }
+}
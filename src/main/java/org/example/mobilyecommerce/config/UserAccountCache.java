@@ -0,0 +1,66 @@
+package org.example.mobilyecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Bounded, short-lived cache of {@link UserAccount}s keyed by email.
+ * <p>
+ * Anything that changes a user's password or roles must call {@link #evict(String)}; the TTL only covers
+ * changes made on other nodes.
+ */
+@Slf4j
+@Component
+public class UserAccountCache {
+
+    private final Cache<String, UserAccount> cache;
+
+    public UserAccountCache(UserDetailsCache config, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAccounts");
+    }
+
+    public UserAccount get(String email, Function<String, UserAccount> loader) {
+        return cache.get(key(email), loader);
+    }
+
+    public void put(UserAccount account) {
+        cache.put(key(account.getUsername()), account);
+    }
+
+    /**
+     * Drops the entry now and again when the current transaction completes, so a concurrent login
+     * can't re-cache the row as it was before the commit.
+     */
+    public void evict(String email) {
+        String key = key(email);
+        cache.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(key);
+                }
+            });
+        }
+        log.debug("🧹 Evicted cached user details for: {}", email);
+    }
+
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.mobilyecommerce.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Size and lifetime of the {@link UserAccountCache} used by {@link UserDetailsServiceConfigImpl}.
+ */
+@ConfigurationProperties(prefix = "user-details-cache")
+@Getter
+@Setter
+@Configuration
+public class UserDetailsCache {
+    private long maxSize = 10_000;
+    /** Upper bound for how long a change made on another node stays unseen. */
+    private Duration ttl = Duration.ofSeconds(30);
+}
@@ -4,26 +4,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.mobilyecommerce.model.User;
 import org.example.mobilyecommerce.repository.UserRepository;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceConfigImpl implements UserDetailsService {
+public class UserDetailsServiceConfigImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserAccountCache userAccountCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        return userAccountCache.get(email, this::loadUserAccount);
+    }
+
+    private UserAccount loadUserAccount(String email) {
         log.debug("🔍 Loading user by email: {}", email);
 
         Optional<User> user = userRepository.findByEmail(email);
@@ -34,16 +37,30 @@ public class UserDetailsServiceConfigImpl implements UserDetailsService {
             throw new UsernameNotFoundException("User not found");
         }
 
-        List<GrantedAuthority> grantedAuthorities = user.get().getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRole()))
-                .collect(Collectors.toList());
-
         log.debug("✅ User loaded successfully: {}", user.get().getUsername());
 
-        return new org.springframework.security.core.userdetails.User(
-                user.get().getEmail(),
-                user.get().getPassword(),
-                grantedAuthorities
-        );
+        // ✅ snapshot واحد للمستخدم والـ roles - يتستخدم تاني في إصدار التوكنات بدون query جديد
+        return UserAccount.of(user.get());
+    }
+
+    /**
+     * ✅ حفظ الـ hash الجديد بعد إعادة التشفير بالـ strength الحالي
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        if (!(userDetails instanceof UserAccount account)) {
+            // مش من الـ service ده - مفيش id نحفظ عليه، الـ hash القديم يفضل شغال
+            log.warn("⚠️ Skipping password hash upgrade for unexpected principal type: {}",
+                    userDetails.getClass().getName());
+            return userDetails;
+        }
+        userRepository.findById(account.getId())
+                .ifPresent(user -> user.setPassword(newPassword));
+        log.debug("🔐 Password hash upgraded for user: {}", account.getUsername());
+
+        UserAccount updated = account.withPassword(newPassword);
+        userAccountCache.put(updated);
+        return updated;
     }
 }
\ No newline at end of file
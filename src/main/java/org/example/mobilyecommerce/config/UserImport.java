@@ -0,0 +1,26 @@
+package org.example.mobilyecommerce.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Settings of the admin bulk user import.
+ */
+@ConfigurationProperties(prefix = "user-import")
+@Getter
+@Setter
+@Configuration
+public class UserImport {
+    /** Rows hashed and inserted together; also the JDBC batch size. */
+    private int chunkSize = 1000;
+    /** Hashing threads; kept well below the core count so the rest of the API stays responsive. */
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    /** Failures listed in the report; the rest are only counted. */
+    private int maxReportedFailures = 1000;
+    /** How long a finished job's report can be fetched. */
+    private Duration jobRetention = Duration.ofHours(24);
+}
@@ -7,6 +7,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class UserNamePasswordAuthenticationProvider implements AuthenticationProvider {
     private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService userDetailsPasswordService;
     private final PasswordEncoder passwordEncoder;
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -23,7 +25,12 @@ public class UserNamePasswordAuthenticationProvider implements AuthenticationPro
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
         if (passwordEncoder.matches(password, userDetails.getPassword())) {
-            return new UsernamePasswordAuthenticationToken(username, password, userDetails.getAuthorities());
+            // ✅ الـ hash اتعمل بـ strength مختلف عن الحالي؟ نعيد التشفير بشكل شفاف
+            if (passwordEncoder.upgradeEncoding(userDetails.getPassword())) {
+                userDetails = userDetailsPasswordService.updatePassword(userDetails, passwordEncoder.encode(password));
+            }
+            // ✅ الـ principal هو المستخدم اللي اتحمل هنا عشان AuthService يستخدمه بدون query تاني
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
         } else {
             throw new InvalidCredentialsException("invalid password");
         }    }
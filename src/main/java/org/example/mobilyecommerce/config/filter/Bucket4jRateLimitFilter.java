@@ -1,88 +1,86 @@
 package org.example.mobilyecommerce.config.filter;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
 import io.github.bucket4j.ConsumptionProbe;
-import io.github.bucket4j.Refill;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.model.UserRole;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * First rate-limit stage, before {@link JwtFilter}: the client-keyed policies, one bucket per client address
+ * (or API key) and route template. Every request counts here, with or without a token.
+ * <p>
+ * {@link UserRateLimitFilter} adds the per-user quotas on top, independent of this stage's buckets.
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class Bucket4jRateLimitFilter extends OncePerRequestFilter {
 
-    // Thread-safe map to cache buckets for each client+path combination
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private final RouteTemplates routeTemplates;
+    private final RateLimitPolicies policies;
+    private final RateLimitBuckets buckets;
 
     /**
-     * Create a new rate limit bucket based on the API path.
-     * Login/signup endpoints have stricter limits.
+     * The key of the bucket a request draws from, per the policy's key strategy.
      */
-    private Bucket createNewBucket(String path) {
-        Bandwidth limit;
-        if (path.startsWith("/api/auth/login") || path.startsWith("/api/auth/signup")) {
-            // Stricter limit for authentication endpoints
-            Refill refill = Refill.greedy(15, Duration.ofMinutes(10));
-            limit = Bandwidth.classic(15, refill);
-            log.info("Created login/signup bucket: limit=3 requests per 10 minutes for path {}", path);
-        } else {
-            // General API endpoints
-            Refill refill = Refill.greedy(60, Duration.ofMinutes(15));
-            limit = Bandwidth.classic(60, refill);
-            log.info("Created general bucket: limit=60 requests per 15 minutes for path {}", path);
+    private String getBucketKey(RateLimit.KeyStrategy strategy, HttpServletRequest req) {
+        if (strategy == RateLimit.KeyStrategy.API_KEY) {
+            String apiKey = req.getHeader("X-API-Key");
+            if (apiKey != null && !apiKey.isBlank()) {
+                // الـ header مش متأكد منه هنا - الـ IP جزء من الـ key فمفتاح مخترع ما يطلعش برّه عنوان صاحبه
+                return "api-key:" + apiKey + "|" + getClientIp(req);
+            }
         }
-        return Bucket.builder().addLimit(limit).build();
-    }
-
-    /**
-     * Resolve the bucket for a given client and path.
-     * If it does not exist, create a new one and cache it.
-     */
-    private Bucket resolveBucket(String key, String path) {
-        return cache.computeIfAbsent(key + ":" + path, k -> {
-            log.info("Creating new bucket for key: {}", k);
-            return createNewBucket(path);
-        });
+        return getClientKey(req);
     }
 
     /**
      * Generate a unique client key based on IP and User-Agent.
      */
     private String getClientKey(HttpServletRequest req) {
-        // Check X-Forwarded-For header for client IP (useful behind proxies)
-        String xfwd = req.getHeader("X-Forwarded-For");
-        String ip = (xfwd != null) ? xfwd.split(",")[0].trim() : req.getRemoteAddr();
-
         // Get User-Agent, fallback to "unknown-agent"
         String agent = req.getHeader("User-Agent");
-        String key = ip + "|" + (agent != null ? agent : "unknown-agent");
+        String key = getClientIp(req) + "|" + (agent != null ? agent : "unknown-agent");
 
         log.debug("Generated client key: {}", key);
         return key;
     }
 
+    private static String getClientIp(HttpServletRequest req) {
+        // Check X-Forwarded-For header for client IP (useful behind proxies)
+        String xfwd = req.getHeader("X-Forwarded-For");
+        return (xfwd != null) ? xfwd.split(",")[0].trim() : req.getRemoteAddr();
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        String key = getClientKey(request);
-        String path = request.getRequestURI();
-
-        // Retrieve or create bucket for this client/path
-        Bucket bucket = resolveBucket(key, path);
+        // الـ route template بدل الـ URI: /api/v1/products/{id} بـ bucket واحد لكل client
+        // المرحلة دي قبل الـ JWT، فمفيش principal ولا role overrides
+        String path = routeTemplates.resolve(request).template();
+        RateLimitPolicies.Resolved resolved = policies.resolve(RateLimitPolicies.Stage.CLIENT, path, (UserRole) null);
+        String key = getBucketKey(resolved.policy().getKey(), request);
 
-        // Try consuming 1 token from the bucket
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        // Try consuming 1 token from the bucket for this client/path
+        ConsumptionProbe probe;
+        try {
+            probe = buckets.tryConsume(RateLimitPolicies.Stage.CLIENT, key, path, resolved);
+        } catch (RuntimeException e) {
+            // الـ shared store واقع: نسيب الطلب يعدي بدل ما نوقف الموقع كله
+            log.warn("⚠️ Rate-limit store unavailable, allowing request on path {}: {}", path, e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
 
         if (probe.isConsumed()) {
             // Request allowed, add remaining tokens in header
@@ -90,12 +88,17 @@ public class Bucket4jRateLimitFilter extends OncePerRequestFilter {
             log.debug("Request allowed for key {} on path {} - Remaining tokens: {}", key, path, probe.getRemainingTokens());
             filterChain.doFilter(request, response);
         } else {
-            // Request denied, set 429 status and Retry-After header
-            long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
-            response.setStatus(429);
-            response.setHeader("Retry-After", String.valueOf(waitForRefill));
-            response.getWriter().write("Too many requests");
-            log.warn("Rate limit exceeded for key {} on path {} - Retry after {} seconds", key, path, waitForRefill);
+            reject(response, probe.getNanosToWaitForRefill(), key, path);
         }
     }
+
+    private static void reject(HttpServletResponse response, long nanosToWaitForRefill, String key, String path)
+            throws IOException {
+        // Request denied, set 429 status and Retry-After header
+        long waitForRefill = nanosToWaitForRefill / 1_000_000_000;
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(waitForRefill));
+        response.getWriter().write("Too many requests");
+        log.warn("Rate limit exceeded for key {} on path {} - Retry after {} seconds", key, path, waitForRefill);
+    }
 }
@@ -0,0 +1,182 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+
+/**
+ * Bucket4j proxy manager keeping bucket state in the {@code rate_limit_bucket} table, so every node draws
+ * from the same buckets ({@code rate-limit.store=jdbc}).
+ * <p>
+ * Each remote call is one short transaction: {@code SELECT ... FOR UPDATE} on the bucket row, apply the
+ * command, {@code UPDATE}. A missing row is inserted empty first; a duplicate-key error from a concurrent
+ * insert just means another node won, and the lock is retried. Only standard SQL is used, so the same code
+ * runs on MySQL and H2.
+ * <p>
+ * Every write pushes {@code expires_at} forward by {@code idle-timeout}; rows past it are full buckets and
+ * are deleted on {@code rate-limit.jdbc.cleanup-cron}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limit", name = "store", havingValue = "jdbc")
+public class JdbcBucketProxyManager extends AbstractSelectForUpdateBasedProxyManager<String> {
+
+    private static final String SELECT_FOR_UPDATE = "SELECT state FROM rate_limit_bucket WHERE id = ? FOR UPDATE";
+    private static final String INSERT_EMPTY = "INSERT INTO rate_limit_bucket (id, state, expires_at) VALUES (?, NULL, ?)";
+    private static final String UPDATE = "UPDATE rate_limit_bucket SET state = ?, expires_at = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM rate_limit_bucket WHERE id = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM rate_limit_bucket WHERE expires_at < ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final long idleTimeoutMillis;
+
+    public JdbcBucketProxyManager(DataSource dataSource, JdbcTemplate jdbcTemplate, RateLimit config) {
+        super(ClientSideConfig.getDefault());
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idleTimeoutMillis = config.getIdleTimeout().toMillis();
+        log.info("🌐 Rate-limit buckets shared through table rate_limit_bucket");
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        jdbcTemplate.update(DELETE, id(key));
+    }
+
+    @Override
+    protected SelectForUpdateBasedTransaction allocateTransaction(String key) {
+        return new Transaction(id(key));
+    }
+
+    @Scheduled(cron = "${rate-limit.jdbc.cleanup-cron:0 */10 * * * *}")
+    public void purgeIdleBuckets() {
+        try {
+            int deleted = jdbcTemplate.update(DELETE_EXPIRED, System.currentTimeMillis());
+            log.debug("🧹 Deleted {} idle rate-limit bucket(s)", deleted);
+        } catch (Exception e) {
+            log.error("❌ Error purging idle rate-limit buckets: {}", e.getMessage(), e);
+        }
+    }
+
+    private static String id(String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One lock-and-update cycle on its own pooled connection, outside any Spring transaction.
+     */
+    private final class Transaction implements SelectForUpdateBasedTransaction {
+
+        private final String id;
+        private Connection connection;
+
+        private Transaction(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void begin() {
+            try {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to open rate-limit transaction", e);
+            }
+        }
+
+        @Override
+        public LockAndGetResult tryLockAndGet() {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+                select.setString(1, id);
+                try (ResultSet rs = select.executeQuery()) {
+                    return rs.next() ? LockAndGetResult.locked(rs.getBytes(1)) : LockAndGetResult.notLocked();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to lock rate-limit bucket", e);
+            }
+        }
+
+        @Override
+        public boolean tryInsertEmptyData() {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY)) {
+                insert.setString(1, id);
+                insert.setLong(2, System.currentTimeMillis() + idleTimeoutMillis);
+                return insert.executeUpdate() > 0;
+            } catch (SQLException e) {
+                // 23xxx = integrity constraint: نود تانية سبقتنا في الـ insert
+                if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                    return false;
+                }
+                throw new IllegalStateException("Failed to create rate-limit bucket", e);
+            }
+        }
+
+        @Override
+        public void update(byte[] data, RemoteBucketState newState) {
+            try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                update.setBytes(1, data);
+                update.setLong(2, System.currentTimeMillis() + idleTimeoutMillis);
+                update.setString(3, id);
+                update.executeUpdate();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to update rate-limit bucket", e);
+            }
+        }
+
+        @Override
+        public void commit() {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to commit rate-limit bucket", e);
+            }
+        }
+
+        @Override
+        public void rollback() {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to roll back rate-limit bucket", e);
+            }
+        }
+
+        @Override
+        public void release() {
+            if (connection == null) {
+                return;
+            }
+            try {
+                // الـ connection راجعة للـ pool - لازم ترجع لحالتها الطبيعية
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("⚠️ Failed to release rate-limit connection: {}", e.getMessage());
+            }
+        }
+    }
+}
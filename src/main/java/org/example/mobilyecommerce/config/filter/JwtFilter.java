@@ -6,18 +6,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
 import org.example.mobilyecommerce.config.iwt.TokenHandler;
-import org.example.mobilyecommerce.model.User;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -25,6 +21,7 @@ import java.util.stream.Collectors;
 public class JwtFilter extends OncePerRequestFilter {
 
     private final TokenHandler tokenHandler;
+    private final RouteTemplates routeTemplates;
 
     /**
      * استخراج IP الحقيقي للمستخدم من Headers (للتعامل مع Reverse Proxy)
@@ -64,7 +61,7 @@ public class JwtFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7).trim();
         log.debug("🟨 Extracted token: {}", token.isEmpty() ? "[EMPTY]" : "[REDACTED]");
 
-        User user;
+        AuthenticatedUser user;
 
         try {
             String clientIp = getClientIp(request);
@@ -82,7 +79,7 @@ public class JwtFilter extends OncePerRequestFilter {
                 return;
             }
 
-            log.info("🟢 Token validated successfully for user '{}' (IP: {})", user.getUsername(), clientIp);
+            log.info("🟢 Token validated successfully for user '{}' (IP: {})", user.username(), clientIp);
 
         } catch (RuntimeException e) {
             log.error("🔴 Token validation error: {} (Path: {})", e.getMessage(), path);
@@ -91,30 +88,22 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
 
-        // Map roles to authorities for Spring Security
-        List<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRole()))
-                .collect(Collectors.toList());
-
-        log.debug("🟪 Mapped roles to authorities for user {}: {}", user.getUsername(), authorities);
-
+        // الـ authorities جاهزة ومشتركة لكل مستخدم بنفس الـ roles
         UsernamePasswordAuthenticationToken authentication =
-                new UsernamePasswordAuthenticationToken(user, null, authorities);
+                new UsernamePasswordAuthenticationToken(user, null, user.authorities());
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        log.debug("🟩 SecurityContext updated successfully for user {}", user.getUsername());
+        log.debug("🟩 SecurityContext updated successfully for user {}", user.username());
 
         filterChain.doFilter(request, response);
-        log.debug("✅ Request {} completed for user {}", path, user.getUsername());
+        log.debug("✅ Request {} completed for user {}", path, user.username());
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        boolean skip = path.contains("/api/v1/auth/login") || path.contains("/api/v1/auth/signup")
-                || path.contains("/api/v1/auth/reset-password") ;
+        boolean skip = routeTemplates.resolve(request).skipsAuthentication();
         if (skip) {
-            log.debug("⚫ Skipping JwtFilter for path {}", path);
+            log.debug("⚫ Skipping JwtFilter for path {}", request.getRequestURI());
         }
         return skip;
     }
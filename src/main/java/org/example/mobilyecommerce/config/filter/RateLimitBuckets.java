@@ -0,0 +1,127 @@
+package org.example.mobilyecommerce.config.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.model.UserRole;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * The rate-limit buckets of both filter stages: local buckets, or proxies of the shared JDBC buckets.
+ * <p>
+ * A bucket is cached per stage, key and route template, and dropped once idle (it is full again by then)
+ * or when the store is full. After a policy reload every cached bucket whose limit changed is moved to
+ * the new one, with its tokens carried over proportionally.
+ */
+@Slf4j
+@Component
+public class RateLimitBuckets {
+
+    private final Cache<String, PolicyBucket> cache;
+    private final RateLimitPolicies policies;
+    // null = buckets on this node only
+    private final JdbcBucketProxyManager proxyManager;
+    private final Optimization syncOptimization;
+
+    public RateLimitBuckets(RateLimit config, RateLimitPolicies policies,
+                            ObjectProvider<JdbcBucketProxyManager> proxyManager, MeterRegistry meterRegistry) {
+        this.policies = policies;
+        this.proxyManager = proxyManager.getIfAvailable();
+        this.syncOptimization = Optimizations.delaying(new DelayParameters(
+                config.getSync().getMaxUnsynchronizedTokens(), config.getSync().getMaxUnsynchronizedTimeout()));
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxBuckets())
+                .expireAfterAccess(config.getIdleTimeout())
+                .recordStats()
+                .build();
+
+        // cache.size و cache.evictions
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "rateLimitBuckets");
+        policies.addReloadListener(this::migrateBuckets);
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key} on {@code template}, creating it with the resolved limit.
+     */
+    public ConsumptionProbe tryConsume(RateLimitPolicies.Stage stage, String key, String template,
+                                       RateLimitPolicies.Resolved resolved) {
+        return cache.get(stage + ":" + key + ":" + template, k -> {
+            log.debug("Creating new bucket for key: {}", k);
+            return new PolicyBucket(createNewBucket(k, resolved.configuration()), stage, template, resolved);
+        }).bucket.tryConsumeAndReturnRemaining(1);
+    }
+
+    private Bucket createNewBucket(String key, BucketConfiguration configuration) {
+        if (proxyManager == null) {
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth limit : configuration.getBandwidths()) {
+                builder.addLimit(limit);
+            }
+            return builder.build();
+        }
+        // الـ proxy بيستهلك محليًا وما بيروحش للجدول غير كل كام token أو لما الـ bucket يقرب يخلص
+        return proxyManager.builder()
+                .withOptimization(syncOptimization)
+                .build(key, configuration);
+    }
+
+    /**
+     * After a policy reload, moves every cached bucket whose limit changed to the new one. A client at half
+     * its old budget starts at half the new one. Buckets of a stage that lost its policy are just dropped.
+     */
+    private void migrateBuckets() {
+        int migrated = 0;
+        for (var e : cache.asMap().entrySet()) {
+            PolicyBucket entry = e.getValue();
+            RateLimitPolicies.Resolved resolved = policies.resolve(entry.stage, entry.template, entry.role);
+            if (resolved == null) {
+                cache.invalidate(e.getKey());
+                continue;
+            }
+            if (resolved.configuration().equalsByContent(entry.configuration)) {
+                continue;
+            }
+            try {
+                entry.bucket.replaceConfiguration(resolved.configuration(), TokensInheritanceStrategy.PROPORTIONALLY);
+                entry.configuration = resolved.configuration();
+                migrated++;
+            } catch (RuntimeException ex) {
+                log.warn("⚠️ Could not migrate rate-limit bucket for {}: {}", entry.template, ex.getMessage());
+            }
+        }
+        log.info("🚦 Migrated {} rate-limit bucket(s) to the new policies", migrated);
+    }
+
+    /**
+     * A cached bucket and the limit it was last configured with.
+     */
+    private static final class PolicyBucket {
+        private final Bucket bucket;
+        private final RateLimitPolicies.Stage stage;
+        private final String template;
+        private final UserRole role;
+        private volatile BucketConfiguration configuration;
+
+        private PolicyBucket(Bucket bucket, RateLimitPolicies.Stage stage, String template,
+                             RateLimitPolicies.Resolved resolved) {
+            this.bucket = bucket;
+            this.stage = stage;
+            this.template = template;
+            this.role = resolved.role();
+            this.configuration = resolved.configuration();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.github.bucket4j.BucketConfiguration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+import org.example.mobilyecommerce.model.UserRole;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rate-limit policies in effect, from {@code rate-limit.policies} or, when set, {@code rate-limit.policies-file}.
+ * <p>
+ * The file is polled every {@code reload-interval}; a changed file is bound exactly like the application
+ * properties and swapped in whole. A file that fails to parse or bind is logged and the previous policies stay.
+ * After a swap every reload listener runs, so buckets already handed out can move to their new limits.
+ * <p>
+ * Policies keyed on {@link RateLimit.KeyStrategy#USER} make up the {@link Stage#USER} stage, the rest the
+ * {@link Stage#CLIENT} one; each stage picks its first matching policy on its own. Which policy a route
+ * template gets is worked out once per stage and template and cached until the next swap.
+ */
+@Slf4j
+@Component
+public class RateLimitPolicies {
+
+    private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+    /** Used when no client policy matches, same as the old general limit. */
+    private static final CompiledPolicy FALLBACK = compile(fallback());
+
+    private final RateLimit config;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile Map<Stage, Snapshot> snapshots;
+    private FileTime loadedVersion;
+    private ScheduledExecutorService watcher;
+
+    public RateLimitPolicies(RateLimit config) {
+        this.config = config;
+        this.snapshots = snapshots(compile(config.getPolicies()));
+    }
+
+    @PostConstruct
+    void start() {
+        if (config.getPoliciesFile() == null) {
+            log.info("🚦 {} rate-limit policy(ies) from application properties", config.getPolicies().size());
+            return;
+        }
+        reloadIfChanged();
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-policies");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getReloadInterval().toMillis();
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs after each successful reload, on the watcher thread.
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * @param template  the route template of the request, {@link RouteTemplates#UNMATCHED} included
+     * @param principal the authenticated user, null before authentication
+     * @return the limit that applies, null when the {@link Stage#USER} stage has no policy for the template
+     */
+    public Resolved resolve(Stage stage, String template, AuthenticatedUser principal) {
+        CompiledPolicy compiled = snapshots.get(stage).forTemplate(template);
+        if (compiled == null) {
+            return null;
+        }
+        if (principal != null) {
+            for (Map.Entry<UserRole, Resolved> override : compiled.overrides().entrySet()) {
+                if (principal.roles().contains(override.getKey())) {
+                    return override.getValue();
+                }
+            }
+        }
+        return compiled.base();
+    }
+
+    /**
+     * The limit for a template as seen by {@code role}; used to move existing buckets after a reload.
+     */
+    public Resolved resolve(Stage stage, String template, UserRole role) {
+        CompiledPolicy compiled = snapshots.get(stage).forTemplate(template);
+        if (compiled == null) {
+            return null;
+        }
+        return role != null ? compiled.overrides().getOrDefault(role, compiled.base()) : compiled.base();
+    }
+
+    private synchronized void reloadIfChanged() {
+        Path file = Path.of(config.getPoliciesFile());
+        try {
+            if (!Files.exists(file)) {
+                if (loadedVersion == null) {
+                    log.warn("⚠️ Rate-limit policies file {} not found, using application properties", file);
+                    loadedVersion = FileTime.fromMillis(0);
+                }
+                return;
+            }
+            FileTime version = Files.getLastModifiedTime(file);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+
+            List<RateLimit.Policy> loaded = new Binder(ConfigurationPropertySources.from(
+                    new YamlPropertySourceLoader().load(file.toString(), new FileSystemResource(file))))
+                    .bind("policies", Bindable.listOf(RateLimit.Policy.class))
+                    .orElseThrow(() -> new IllegalArgumentException("no 'policies' list"));
+            List<CompiledPolicy> compiled = compile(loaded);
+
+            // snapshot جديد بالكامل - الـ cache بتاع الـ templates بيتبني من الأول
+            snapshots = snapshots(compiled);
+            loadedVersion = version;
+            log.info("🚦 Loaded {} rate-limit policy(ies) from {}", compiled.size(), file);
+            reloadListeners.forEach(Runnable::run);
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Invalid rate-limit policies in {}, keeping the previous ones: {}", file, e.getMessage());
+        }
+    }
+
+    private static List<CompiledPolicy> compile(List<RateLimit.Policy> policies) {
+        return policies.stream().map(RateLimitPolicies::compile).toList();
+    }
+
+    private static CompiledPolicy compile(RateLimit.Policy policy) {
+        validate(policy);
+        Map<UserRole, Resolved> overrides = new LinkedHashMap<>();
+        policy.getRoles().forEach((role, limit) -> {
+            validate(limit);
+            overrides.put(role, new Resolved(policy, role, limit.toConfiguration()));
+        });
+        return new CompiledPolicy(PARSER.parse(policy.getRoute()),
+                new Resolved(policy, null, policy.toConfiguration()), overrides);
+    }
+
+    private static Map<Stage, Snapshot> snapshots(List<CompiledPolicy> compiled) {
+        Map<Stage, Snapshot> byStage = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            List<CompiledPolicy> policies = compiled.stream()
+                    .filter(p -> Stage.of(p.base().policy()) == stage)
+                    .toList();
+            byStage.put(stage, new Snapshot(policies, stage == Stage.CLIENT ? FALLBACK : null));
+        }
+        return byStage;
+    }
+
+    private static void validate(RateLimit.Limit limit) {
+        if (limit.getCapacity() <= 0 || limit.getRefillPeriod() == null || limit.getRefillPeriod().isZero()) {
+            throw new IllegalArgumentException("rate-limit policy needs a positive capacity and refill-period");
+        }
+    }
+
+    private static RateLimit.Policy fallback() {
+        RateLimit.Policy policy = new RateLimit.Policy();
+        policy.setCapacity(60);
+        policy.setRefillPeriod(Duration.ofMinutes(15));
+        return policy;
+    }
+
+    private record CompiledPolicy(PathPattern pattern, Resolved base, Map<UserRole, Resolved> overrides) {
+    }
+
+    /**
+     * One generation of a stage's policies together with the template lookups made against it.
+     *
+     * @param fallback used when nothing matches, null for no limit at all
+     */
+    private record Snapshot(List<CompiledPolicy> policies, CompiledPolicy fallback,
+                            Map<String, Optional<CompiledPolicy>> byTemplate) {
+
+        Snapshot(List<CompiledPolicy> policies, CompiledPolicy fallback) {
+            this(policies, fallback, new ConcurrentHashMap<>());
+        }
+
+        CompiledPolicy forTemplate(String template) {
+            return byTemplate.computeIfAbsent(template, t -> Optional.ofNullable(match(t))).orElse(null);
+        }
+
+        private CompiledPolicy match(String template) {
+            if (!RouteTemplates.UNMATCHED.equals(template)) {
+                PathContainer path = PathContainer.parsePath(template);
+                for (CompiledPolicy compiled : policies) {
+                    if (compiled.pattern().matches(path)) {
+                        return compiled;
+                    }
+                }
+            }
+            // الـ URLs اللي مالهاش controller بتاخد الـ catch-all لو موجودة
+            return policies.stream()
+                    .filter(p -> p.pattern().getPatternString().equals("/**"))
+                    .findFirst()
+                    .orElse(fallback);
+        }
+    }
+
+    /**
+     * The two filters a request passes: {@link Bucket4jRateLimitFilter} before authentication and
+     * {@link UserRateLimitFilter} after it.
+     */
+    public enum Stage {
+        /** Keyed on the client: IP or API key. */
+        CLIENT,
+        /** Keyed on the authenticated user; anonymous requests skip it. */
+        USER;
+
+        static Stage of(RateLimit.Policy policy) {
+            return policy.getKey() == RateLimit.KeyStrategy.USER ? USER : CLIENT;
+        }
+    }
+
+    /**
+     * The policy for a request and the limit it ends up with.
+     *
+     * @param role the role whose override applies, null for the policy's own limit
+     */
+    public record Resolved(RateLimit.Policy policy, UserRole role, BucketConfiguration configuration) {
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.mobilyecommerce.config.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.condition.PathPatternsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a request to the route template of the controller method that handles it, e.g.
+ * {@code /api/v1/products/42} → {@code /api/v1/products/{id}}.
+ * <p>
+ * The table is built once from the registered {@code @RequestMapping}s. Literal routes are found with one
+ * hash lookup; templates with variables are tried most specific first, as Spring MVC itself would.
+ * Requests that match no route all resolve to {@link #UNMATCHED}, so probing random URLs can't create a
+ * new rate-limit bucket per URL. The result is kept on the request for the filters that run after.
+ */
+@Slf4j
+@Component
+public class RouteTemplates {
+
+    /** Template of every request no controller handles. */
+    public static final String UNMATCHED = "<unmatched>";
+
+    /** Routes reached without an access token, so {@link JwtFilter} leaves them alone. */
+    private static final Set<String> UNAUTHENTICATED = Set.of(
+            "/api/v1/auth/login",
+            "/api/v1/auth/signup",
+            "/api/v1/auth/reset-password",
+            "/.well-known/jwks.json");
+
+    private static final String ATTRIBUTE = RouteTemplates.class.getName() + ".route";
+
+    private final Map<String, Route> literals = new HashMap<>();
+    private final List<Route> patterns;
+
+    public RouteTemplates(@Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        // List مش TreeSet: الـ comparator بيرجع 0 لـ patterns مختلفة بنفس الـ specificity
+        List<PathPattern> sorted = new ArrayList<>();
+        for (RequestMappingInfo info : handlerMapping.getHandlerMethods().keySet()) {
+            sorted.addAll(patternsOf(info));
+        }
+        sorted.sort(PathPattern.SPECIFICITY_COMPARATOR);
+
+        List<Route> withVariables = new ArrayList<>();
+        for (PathPattern pattern : sorted) {
+            Route route = new Route(pattern.getPatternString(), UNAUTHENTICATED.contains(pattern.getPatternString()),
+                    pattern);
+            if (isLiteral(pattern)) {
+                literals.putIfAbsent(pattern.getPatternString(), route);
+            } else {
+                withVariables.add(route);
+            }
+        }
+        this.patterns = List.copyOf(withVariables);
+        log.info("🗺️ Route table built: {} literal route(s), {} template(s)", literals.size(), patterns.size());
+    }
+
+    /**
+     * @return the route for the request, {@link Route#template()} being {@link #UNMATCHED} when none applies
+     */
+    public Route resolve(HttpServletRequest request) {
+        Route route = (Route) request.getAttribute(ATTRIBUTE);
+        if (route == null) {
+            route = match(RequestPath.parse(request.getRequestURI(), request.getContextPath()).pathWithinApplication());
+            request.setAttribute(ATTRIBUTE, route);
+        }
+        return route;
+    }
+
+    private Route match(PathContainer path) {
+        Route literal = literals.get(path.value());
+        if (literal != null) {
+            return literal;
+        }
+        for (Route route : patterns) {
+            if (route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return Route.NONE;
+    }
+
+    private static List<PathPattern> patternsOf(RequestMappingInfo info) {
+        PathPatternsRequestCondition condition = info.getPathPatternsCondition();
+        if (condition != null) {
+            return List.copyOf(condition.getPatterns());
+        }
+        // الـ mapping متسجل بـ AntPathMatcher - نحوله لـ PathPattern
+        return info.getPatternValues().stream().map(PathPatternParser.defaultInstance::parse).toList();
+    }
+
+    private static boolean isLiteral(PathPattern pattern) {
+        String value = pattern.getPatternString();
+        return value.indexOf('{') < 0 && value.indexOf('*') < 0 && value.indexOf('?') < 0;
+    }
+
+    /**
+     * @param template            the route pattern as declared on the controller
+     * @param skipsAuthentication whether {@link JwtFilter} should skip the request
+     */
+    public record Route(String template, boolean skipsAuthentication, PathPattern pattern) {
+        static final Route NONE = new Route(UNMATCHED, false, null);
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Second rate-limit stage, right after {@link JwtFilter}: the {@code USER}-keyed policies, one bucket per
+ * user id and route template.
+ * <p>
+ * The user id comes from the {@link AuthenticatedUser} the token's claims were turned into, so this stage
+ * costs no database lookup. The quota is on top of the client stage's and independent of it: users sharing
+ * an IP each get their own, and a user switching IPs keeps theirs. Anonymous requests, and routes no user
+ * policy matches, pass straight through.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserRateLimitFilter extends OncePerRequestFilter {
+
+    private final RouteTemplates routeTemplates;
+    private final RateLimitPolicies policies;
+    private final RateLimitBuckets buckets;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        AuthenticatedUser principal = currentPrincipal();
+        if (principal == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String path = routeTemplates.resolve(request).template();
+        RateLimitPolicies.Resolved resolved = policies.resolve(RateLimitPolicies.Stage.USER, path, principal);
+        if (resolved == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = "user:" + principal.id();
+        ConsumptionProbe probe;
+        try {
+            probe = buckets.tryConsume(RateLimitPolicies.Stage.USER, key, path, resolved);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Rate-limit store unavailable, allowing request for user {} on path {}: {}",
+                    principal.id(), path, e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (probe.isConsumed()) {
+            response.setHeader("X-User-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
+            log.debug("Request allowed for user {} on path {} - Remaining tokens: {}",
+                    principal.id(), path, probe.getRemainingTokens());
+            filterChain.doFilter(request, response);
+        } else {
+            long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(waitForRefill));
+            response.getWriter().write("Too many requests");
+            log.warn("🚫 User rate limit exceeded for user {} on path {} - Retry after {} seconds",
+                    principal.id(), path, waitForRefill);
+        }
+    }
+
+    /**
+     * The principal {@link JwtFilter} put in the context, null for anonymous requests.
+     */
+    private static AuthenticatedUser currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user ? user : null;
+    }
+}
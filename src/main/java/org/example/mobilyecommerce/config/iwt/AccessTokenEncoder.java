@@ -0,0 +1,281 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import org.example.mobilyecommerce.model.UserRole;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encoder specialised for the access token claim set, producing the same JWS that jjwt would.
+ * <p>
+ * The header segment (algorithm and {@code kid}) is Base64URL-encoded once. Per token, the claims JSON, its
+ * Base64URL form and the signature are written into buffers owned by the calling thread and signed with a
+ * thread-confined {@link Mac} or {@link Signature}; the only allocation is the resulting {@code String}.
+ * Claim names are the short ones listed below; {@link TokenHandler} still reads the long names of tokens
+ * issued before.
+ */
+final class AccessTokenEncoder {
+
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_USERNAME = "usr";
+    static final String CLAIM_ROLES = "rol";
+    static final String CLAIM_TYPE = "typ";
+    static final String CLAIM_EPOCH = "ep";
+    static final String ACCESS_TYPE = "A";
+
+    private static final String SUBJECT = "Mobily.cloud";
+    /** Enough for RSA-4096. */
+    private static final int MAX_SIGNATURE_LENGTH = 512;
+
+    private static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] CLAIMS_PREFIX = ascii("{\"sub\":\"" + SUBJECT + "\",\"" + CLAIM_TYPE + "\":\""
+            + ACCESS_TYPE + "\",\"" + CLAIM_USER_ID + "\":");
+    private static final byte[] USERNAME_PREFIX = ascii(",\"" + CLAIM_USERNAME + "\":\"");
+    private static final byte[] ROLES_PREFIX = ascii("\",\"" + CLAIM_ROLES + "\":");
+    private static final byte[] EPOCH_PREFIX = ascii(",\"" + CLAIM_EPOCH + "\":");
+    private static final byte[] ISSUED_AT_PREFIX = ascii(",\"iat\":");
+    private static final byte[] EXPIRATION_PREFIX = ascii(",\"exp\":");
+    private static final byte[] NULL = ascii("null");
+
+    /** {@code ["ADMIN","CUSTOMER"]} per role set, shared like the authority lists. */
+    private static final Map<Set<UserRole>, byte[]> ROLES_JSON = new ConcurrentHashMap<>();
+
+    private final byte[] headerSegment;
+    private final ThreadLocal<Buffers> buffers;
+
+    /**
+     * @param signingKey {@code SecretKey} for HMAC algorithms, {@code PrivateKey} otherwise
+     */
+    AccessTokenEncoder(JwtToken.Algorithm algorithm, String keyId, Key signingKey) {
+        String header = "{\"alg\":\"" + algorithm.name() + "\",\"kid\":\"" + keyId + "\"}";
+        this.headerSegment = Base64.getUrlEncoder().withoutPadding().encode(header.getBytes(StandardCharsets.UTF_8));
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(algorithm, signingKey));
+    }
+
+    /**
+     * @param issuedAt  {@code iat}, epoch seconds
+     * @param expiresAt {@code exp}, epoch seconds
+     */
+    String encode(AuthenticatedUser user, long epoch, long issuedAt, long expiresAt) {
+        Buffers b = buffers.get();
+
+        b.json.reset();
+        b.json.write(CLAIMS_PREFIX);
+        writeNumber(b.json, user.id());
+        b.json.write(USERNAME_PREFIX);
+        writeEscaped(b.json, user.username());
+        b.json.write(ROLES_PREFIX);
+        b.json.write(ROLES_JSON.computeIfAbsent(user.roles(), AccessTokenEncoder::rolesJson));
+        b.json.write(EPOCH_PREFIX);
+        writeNumber(b.json, epoch);
+        b.json.write(ISSUED_AT_PREFIX);
+        writeNumber(b.json, issuedAt);
+        b.json.write(EXPIRATION_PREFIX);
+        writeNumber(b.json, expiresAt);
+        b.json.write('}');
+
+        // header.payload
+        b.token.reset();
+        b.token.write(headerSegment);
+        b.token.write('.');
+        base64Url(b.json.bytes, b.json.length, b.token);
+
+        // .signature
+        int signatureLength = b.sign();
+        b.token.write('.');
+        base64Url(b.signature, signatureLength, b.token);
+
+        return new String(b.token.bytes, 0, b.token.length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] rolesJson(Set<UserRole> roles) {
+        StringBuilder json = new StringBuilder("[");
+        for (UserRole role : roles) {
+            json.append(json.length() > 1 ? ",\"" : "\"").append(role.name()).append('"');
+        }
+        return ascii(json.append(']').toString());
+    }
+
+    private static void writeNumber(Bytes out, Long value) {
+        if (value == null) {
+            out.write(NULL);
+        } else {
+            writeNumber(out, value.longValue());
+        }
+    }
+
+    private static void writeNumber(Bytes out, long value) {
+        if (value < 0) {
+            // ما بيحصلش مع ids و timestamps، بس نفضل صح
+            out.write(ascii(Long.toString(value)));
+            return;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        out.ensure(digits);
+        for (int i = out.length + digits - 1; i >= out.length; i--) {
+            out.bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        out.length += digits;
+    }
+
+    /**
+     * Writes {@code value} as the inside of a JSON string, UTF-8 encoded.
+     */
+    private static void writeEscaped(Bytes out, String value) {
+        out.ensure(value.length() * 6);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write('\\');
+                out.write('u');
+                out.write('0');
+                out.write('0');
+                out.write(hex(c >> 4));
+                out.write(hex(c & 0xF));
+            } else if (c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xC0 | (c >> 6));
+                out.write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                out.write(0xF0 | (cp >> 18));
+                out.write(0x80 | ((cp >> 12) & 0x3F));
+                out.write(0x80 | ((cp >> 6) & 0x3F));
+                out.write(0x80 | (cp & 0x3F));
+            } else {
+                out.write(0xE0 | (c >> 12));
+                out.write(0x80 | ((c >> 6) & 0x3F));
+                out.write(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int hex(int nibble) {
+        return nibble < 10 ? '0' + nibble : 'a' + nibble - 10;
+    }
+
+    /**
+     * Base64URL without padding, appended to {@code out}.
+     */
+    private static void base64Url(byte[] src, int length, Bytes out) {
+        out.ensure((length + 2) / 3 * 4);
+        byte[] dst = out.bytes;
+        int o = out.length;
+        int i = 0;
+        for (int end = length - length % 3; i < end; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[o++] = BASE64_URL[bits >>> 18];
+            dst[o++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            dst[o++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            dst[o++] = BASE64_URL[bits & 0x3F];
+        }
+        int remaining = length - i;
+        if (remaining == 1) {
+            int bits = (src[i] & 0xFF) << 16;
+            dst[o++] = BASE64_URL[bits >>> 18];
+            dst[o++] = BASE64_URL[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[o++] = BASE64_URL[bits >>> 18];
+            dst[o++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            dst[o++] = BASE64_URL[(bits >>> 6) & 0x3F];
+        }
+        out.length = o;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Growable byte array reused across tokens on the same thread.
+     */
+    private static final class Bytes {
+        private byte[] bytes = new byte[512];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void write(byte[] src) {
+            ensure(src.length);
+            System.arraycopy(src, 0, bytes, length, src.length);
+            length += src.length;
+        }
+    }
+
+    private static final class Buffers {
+        private final Mac mac;
+        private final Signature signer;
+        private final Bytes json = new Bytes();
+        private final Bytes token = new Bytes();
+        private final byte[] signature = new byte[MAX_SIGNATURE_LENGTH];
+
+        private Buffers(JwtToken.Algorithm algorithm, Key key) {
+            try {
+                if (algorithm.isHmac()) {
+                    this.mac = Mac.getInstance(algorithm.getJcaName());
+                    this.mac.init(key);
+                    this.signer = null;
+                } else {
+                    this.mac = null;
+                    this.signer = Signature.getInstance(algorithm.getJcaName());
+                    this.signer.initSign((PrivateKey) key);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(algorithm + " signing is not available", e);
+            }
+        }
+
+        /**
+         * Signs {@code token} into {@code signature}.
+         *
+         * @return signature length
+         */
+        private int sign() {
+            try {
+                if (mac != null) {
+                    mac.update(token.bytes, 0, token.length);
+                    mac.doFinal(signature, 0);
+                    return mac.getMacLength();
+                }
+                signer.update(token.bytes, 0, token.length);
+                return signer.sign(signature, 0, signature.length);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to sign access token", e);
+            }
+        }
+    }
+}
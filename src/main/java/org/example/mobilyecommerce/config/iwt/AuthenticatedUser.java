@@ -0,0 +1,48 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import org.example.mobilyecommerce.model.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable security principal built from access token claims.
+ * <p>
+ * Placed in the {@code SecurityContext} instead of the JPA {@code User}, so authenticating a request
+ * needs no entity load. Authority lists are shared between all principals with the same role set.
+ *
+ * @param id          user id ({@code id} claim)
+ * @param username    username ({@code username} claim)
+ * @param roles       roles ({@code roles} claim)
+ * @param authorities {@code ROLE_*} authorities for the roles
+ */
+public record AuthenticatedUser(Long id, String username, Set<UserRole> roles,
+                                List<GrantedAuthority> authorities) implements Principal {
+
+    private static final Map<Set<UserRole>, List<GrantedAuthority>> AUTHORITIES = new ConcurrentHashMap<>();
+
+    public static AuthenticatedUser of(Long id, String username, Collection<UserRole> roles) {
+        Set<UserRole> roleSet = roles.isEmpty() ? EnumSet.noneOf(UserRole.class) : EnumSet.copyOf(roles);
+        List<GrantedAuthority> authorities = AUTHORITIES.computeIfAbsent(roleSet, AuthenticatedUser::toAuthorities);
+        return new AuthenticatedUser(id, username, Collections.unmodifiableSet(roleSet), authorities);
+    }
+
+    private static List<GrantedAuthority> toAuthorities(Set<UserRole> roles) {
+        return roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
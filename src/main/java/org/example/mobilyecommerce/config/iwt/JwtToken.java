@@ -4,8 +4,12 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @ConfigurationProperties(prefix = "token")
 @Getter
@@ -15,4 +19,188 @@ public class JwtToken {
     private String secret ;
     private Duration accessTime;
     private Duration refreshTime;
+    private VerificationCache verificationCache = new VerificationCache();
+    private Storage storage = new Storage();
+    private EpochCache epochCache = new EpochCache();
+    private ClaimsCache claimsCache = new ClaimsCache();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Cleanup cleanup = new Cleanup();
+    private Partitioning partitioning = new Partitioning();
+    private Signing signing = new Signing();
+    private Store store = new Store();
+    private SignedRefresh signedRefresh = new SignedRefresh();
+
+    /**
+     * Settings for {@link VerifiedTokenCache}.
+     */
+    @Getter
+    @Setter
+    public static class VerificationCache {
+        private long maxSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(2);
+    }
+
+    /**
+     * Settings for {@link VerifiedClaimsCache}. Entries always expire with the token itself.
+     */
+    @Getter
+    @Setter
+    public static class ClaimsCache {
+        private long maxSize = 20_000;
+    }
+
+    /**
+     * How access and refresh tokens are persisted.
+     * Lookups always go through the digest; the raw value is only kept for databases
+     * that have not run {@code db/token-digest-migration.sql} yet.
+     */
+    @Getter
+    @Setter
+    public static class Storage {
+        private boolean keepRawValue = true;
+    }
+
+    /**
+     * Buffered, batched persistence of issued access tokens.
+     */
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private int queueCapacity = 10_000;
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(200);
+    }
+
+    /**
+     * Batched deletion of expired tokens. The cron itself is read from {@code token.cleanup.cron}.
+     */
+    @Getter
+    @Setter
+    public static class Cleanup {
+        private int batchSize = 1000;
+        private Duration pause = Duration.ofMillis(50);
+    }
+
+    /**
+     * Range partitioning of the token tables by expiry date (MySQL, see {@code db/token-partitioning.sql}).
+     */
+    @Getter
+    @Setter
+    public static class Partitioning {
+        private boolean enabled = false;
+        private Granularity granularity = Granularity.DAY;
+    }
+
+    @Getter
+    public enum Granularity {
+        DAY(Duration.ofDays(1)),
+        HOUR(Duration.ofHours(1));
+
+        private final Duration duration;
+
+        Granularity(Duration duration) {
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * Where issued tokens are kept: the database tables ({@code JPA}) or an embedded
+     * append-only log on local disk ({@code LOCAL}, single-node deployments only).
+     */
+    @Getter
+    @Setter
+    public static class Store {
+        private StoreType type = StoreType.JPA;
+        private Local local = new Local();
+    }
+
+    @Getter
+    @Setter
+    public static class Local {
+        private String directory = "./data/tokens";
+        /** Size of each memory-mapped segment file. */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        /** Sealed segments with a smaller share of live records are rewritten during cleanup. */
+        private double compactionThreshold = 0.5;
+    }
+
+    public enum StoreType {
+        JPA,
+        LOCAL
+    }
+
+    /**
+     * Self-contained refresh tokens ({@link SignedRefreshTokens}). Only issuance is switched by {@code enabled};
+     * signed tokens already handed out are accepted either way.
+     */
+    @Getter
+    @Setter
+    public static class SignedRefresh {
+        private boolean enabled = false;
+        /** Revoked families and users, reloaded on startup. */
+        private String denyListFile = "./data/refresh-deny-list.bin";
+        private Duration persistInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Access token signing ({@link TokenSigningKeys}). HMAC algorithms sign with {@link #secret};
+     * ES256 and RS256 sign with {@code private-key} and publish {@code public-key} on the JWKS endpoint.
+     */
+    @Getter
+    @Setter
+    public static class Signing {
+        private Algorithm algorithm = Algorithm.HS512;
+        /** {@code kid} header of new tokens; change it together with the key to rotate. */
+        private String keyId = "k1";
+        /** PKCS#8 PEM, asymmetric algorithms only. */
+        private Resource privateKey;
+        /** X.509 PEM, asymmetric algorithms only. */
+        private Resource publicKey;
+        /** Previous keys, still accepted until the tokens they signed have expired. */
+        private List<RetiredKey> retiredKeys = new ArrayList<>();
+    }
+
+    /**
+     * A verification-only key: {@code secret} for HMAC algorithms, {@code public-key} otherwise.
+     */
+    @Getter
+    @Setter
+    public static class RetiredKey {
+        private String keyId;
+        private Algorithm algorithm;
+        private String secret;
+        private Resource publicKey;
+    }
+
+    @Getter
+    public enum Algorithm {
+        HS256("HmacSHA256"),
+        HS384("HmacSHA384"),
+        HS512("HmacSHA512"),
+        ES256("SHA256withECDSAinP1363Format"),
+        RS256("SHA256withRSA");
+
+        /** JCA name of the {@code Mac} or {@code Signature}. */
+        private final String jcaName;
+
+        Algorithm(String jcaName) {
+            this.jcaName = jcaName;
+        }
+
+        public boolean isHmac() {
+            return name().startsWith("HS");
+        }
+    }
+
+    /**
+     * Settings for the per-user token epoch cache.
+     * The TTL bounds how long an epoch bump made on another node stays unseen.
+     */
+    @Getter
+    @Setter
+    public static class EpochCache {
+        private long maxSize = 50_000;
+        private Duration ttl = Duration.ofMinutes(1);
+    }
 }
@@ -0,0 +1,131 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Self-contained refresh tokens: {@code r1.<payload>.<mac>}, both parts Base64URL.
+ * <p>
+ * The payload is a fixed 48-byte record (user id, family id, generation, issued at, expires at) and the MAC is
+ * HMAC-SHA256 under a key derived from {@code token.secret}, distinct from the access token key, so neither
+ * kind of token can pass for the other. Verifying one needs no database; revocation is the job of the
+ * refresh token deny-list, which also knows the newest generation of each family.
+ */
+@Component
+public class SignedRefreshTokens {
+
+    private static final String PREFIX = "r1.";
+    private static final int PAYLOAD_SIZE = 8 + 16 + 8 + 8 + 8;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final boolean enabled;
+    private final ThreadLocal<Mac> mac;
+
+    public SignedRefreshTokens(JwtToken jwtToken) {
+        this.enabled = jwtToken.getSignedRefresh().isEnabled();
+        SecretKeySpec key = new SecretKeySpec(
+                deriveKey(jwtToken.getSecret().getBytes(StandardCharsets.UTF_8)), MAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    /**
+     * Whether new refresh tokens are issued in this format ({@code token.signed-refresh.enabled}).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Signed tokens and the older random ones share the refresh endpoint; the prefix tells them apart.
+     */
+    public boolean isSigned(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    public String issue(Long userId, UUID familyId, long generation, Instant issuedAt, Instant expiresAt) {
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_SIZE)
+                .putLong(userId)
+                .putLong(familyId.getMostSignificantBits())
+                .putLong(familyId.getLeastSignificantBits())
+                .putLong(generation)
+                .putLong(issuedAt.toEpochMilli())
+                .putLong(expiresAt.toEpochMilli())
+                .array();
+        return PREFIX + ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * @return the payload if the MAC matches and the token has not expired, empty otherwise
+     */
+    public Optional<Payload> verify(String token, Instant now) {
+        if (!isSigned(token)) {
+            return Optional.empty();
+        }
+        int separator = token.indexOf('.', PREFIX.length());
+        if (separator < 0) {
+            return Optional.empty();
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(PREFIX.length(), separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        // مقارنة ثابتة الوقت
+        if (payload.length != PAYLOAD_SIZE || !MessageDigest.isEqual(sign(payload), signature)) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        Payload claims = new Payload(buffer.getLong(), new UUID(buffer.getLong(), buffer.getLong()), buffer.getLong(),
+                Instant.ofEpochMilli(buffer.getLong()), Instant.ofEpochMilli(buffer.getLong()));
+        return claims.expiresAt().isAfter(now) ? Optional.of(claims) : Optional.empty();
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac m = mac.get();
+        m.update(PREFIX.getBytes(StandardCharsets.US_ASCII));
+        return m.doFinal(payload);
+    }
+
+    /**
+     * HMAC of a fixed label under the configured secret, so rotating {@code token.secret} rotates this key too.
+     */
+    private static byte[] deriveKey(byte[] secret) {
+        Mac m = newMac(new SecretKeySpec(secret, MAC_ALGORITHM));
+        return m.doFinal("refresh-token".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac m = Mac.getInstance(MAC_ALGORITHM);
+            m.init(key);
+            return m;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * What a signed refresh token says about itself. The family id names the login it was issued for, and
+     * the generation counts the refreshes of that login: 0 for the token the login issued.
+     */
+    public record Payload(Long userId, UUID familyId, long generation, Instant issuedAt, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digest of a raw token value.
+ * Used as a fixed-size key so that lookups never compare the full JWT string.
+ */
+public final class TokenDigest {
+
+    private final byte[] bytes;
+    private final int hash;
+
+    private TokenDigest(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    public static TokenDigest of(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return new TokenDigest(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Digest read back from storage.
+     */
+    public static TokenDigest fromBytes(byte[] bytes) {
+        if (bytes.length != 32) {
+            throw new IllegalArgumentException("SHA-256 digest must be 32 bytes, got " + bytes.length);
+        }
+        return new TokenDigest(bytes.clone());
+    }
+
+    public byte[] bytes() {
+        return bytes.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenDigest that)) return false;
+        return Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        // أول 8 بايت تكفي للتشخيص في الـ logs
+        return HexFormat.of().formatHex(bytes, 0, 8);
+    }
+}
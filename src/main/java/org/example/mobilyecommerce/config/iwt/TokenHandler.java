@@ -1,64 +1,68 @@
 package org.example.mobilyecommerce.config.iwt;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import lombok.Getter;
+import org.example.mobilyecommerce.exception.UserNotFoundException;
 import org.example.mobilyecommerce.model.Role;
 import org.example.mobilyecommerce.model.Token;
 import org.example.mobilyecommerce.model.User;
-import org.example.mobilyecommerce.repository.TokenRepository;
-import org.example.mobilyecommerce.repository.UserRepository;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.example.mobilyecommerce.model.UserRole;
+import org.example.mobilyecommerce.service.TokenEpochServiceInterface;
+import org.example.mobilyecommerce.service.TokenStore;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @Service
 @Getter
 public class TokenHandler {
 
-    private final UserRepository userRepository;
-    private final TokenRepository tokenRepository;
+    private final TokenStore tokenStore;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final VerifiedClaimsCache verifiedClaimsCache;
+    private final TokenEpochServiceInterface tokenEpochService;
     private final String secret;
     private final Duration accessTime;
     private final Duration refreshTime;
-    private final Key key;
+    private final boolean keepRawTokenValue;
     private final JwtParser jwtParser;
-
-    public TokenHandler(JwtToken jwtToken, UserRepository userRepository, TokenRepository tokenRepository) {
-        this.userRepository = userRepository;
-        this.tokenRepository = tokenRepository;
+    private final AccessTokenEncoder accessTokenEncoder;
+
+    public TokenHandler(JwtToken jwtToken, TokenStore tokenStore,
+                        VerifiedTokenCache verifiedTokenCache, VerifiedClaimsCache verifiedClaimsCache,
+                        TokenEpochServiceInterface tokenEpochService, TokenSigningKeys tokenSigningKeys) {
+        this.tokenStore = tokenStore;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.verifiedClaimsCache = verifiedClaimsCache;
+        this.tokenEpochService = tokenEpochService;
         this.secret = jwtToken.getSecret();
         this.accessTime = jwtToken.getAccessTime();
         this.refreshTime = jwtToken.getRefreshTime();
+        this.keepRawTokenValue = jwtToken.getStorage().isKeepRawValue();
 
-        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+        // المفتاح بيتحدد من الـ kid في الـ header - يسمح بتغيير المفاتيح بدون ما التوكنات القديمة تبوظ
+        this.jwtParser = Jwts.parserBuilder().setSigningKeyResolver(tokenSigningKeys.resolver()).build();
+        this.accessTokenEncoder = tokenSigningKeys.encoder();
     }
 
     /**
      * إنشاء Access Token
      */
     public String createAccessToken(User user) {
-        Date issueDate = new Date();
-        Date expirationDate = Date.from(issueDate.toInstant().plus(accessTime));
-
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("id", user.getId());
-        claims.put("username", user.getUsername());
-        claims.put("roles", user.getRoles().stream().map(Role::getRole).toList());
-        claims.put("type", "ACCESS");
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject("Mobily.cloud")
-                .setIssuedAt(issueDate)
-                .setExpiration(expirationDate)
-                .signWith(SignatureAlgorithm.HS512, key)
-                .compact();
+        return createAccessToken(AuthenticatedUser.of(user.getId(), user.getUsername(),
+                user.getRoles().stream().map(Role::getRole).toList()));
+    }
+
+    /**
+     * إنشاء Access Token من principal جاهز (بدون الحاجة للـ User entity)
+     */
+    public String createAccessToken(AuthenticatedUser user) {
+        long issuedAt = System.currentTimeMillis() / 1000;
+        long expiresAt = issuedAt + accessTime.toSeconds();
+
+        return accessTokenEncoder.encode(user, tokenEpochService.currentEpoch(user.id()), issuedAt, expiresAt);
     }
 
     /**
@@ -67,22 +71,38 @@ public class TokenHandler {
      * @param token التوكن المرسل
      * @param requestIp عنوان IP للطلب الحالي
      * @param requestAgent User-Agent للطلب الحالي
-     * @return User object إذا كان التوكن صحيح، null إذا كان غير صحيح
+     * @return principal مبني من الـ claims إذا كان التوكن صحيح، null إذا كان غير صحيح
      */
-    public User checkToken(String token, String requestIp, String requestAgent) {
-        try {
-            Claims claims = jwtParser.parseClaimsJws(token).getBody();
-            String username = claims.get("username", String.class);
-            String type = claims.get("type", String.class);
-
-            // التحقق من نوع التوكن
-            if (!"ACCESS".equals(type)) {
-                log.warn("⚠️ Invalid token type: {}", type);
+    public AuthenticatedUser checkToken(String token, String requestIp, String requestAgent) {
+        // التوكن اتحقق منه قبل كده؟ نرجع النتيجة من الـ cache بدون HMAC أو SQL
+        TokenDigest digest = TokenDigest.of(token);
+        Optional<VerifiedTokenCache.VerifiedToken> cached = verifiedTokenCache.get(digest);
+        if (cached.isPresent()) {
+            VerifiedTokenCache.VerifiedToken v = cached.get();
+            if (!v.isUsable() || !isCurrentEpoch(v.userId(), v.epoch())) {
+                log.warn("⚠️ Token is expired or revoked (cached)");
                 return null;
             }
+            return v.principal();
+        }
 
-            // البحث عن التوكن في قاعدة البيانات
-            Optional<Token> tokenEntity = tokenRepository.findByToken(token);
+        try {
+            // الـ claims اتحقق منها قبل كده؟ نتجنب HMAC و JSON parsing
+            VerifiedClaimsCache.VerifiedClaims verified = verifiedClaimsCache.get(digest).orElse(null);
+            if (verified == null) {
+                verified = parseAccessToken(token);
+                if (verified == null) {
+                    return null;
+                }
+                verifiedClaimsCache.put(digest, verified);
+            }
+
+            AuthenticatedUser principal = verified.principal();
+            Long userId = principal.id();
+            long epoch = verified.epoch();
+
+            // البحث عن التوكن في الـ store
+            Optional<Token> tokenEntity = tokenStore.findAccessToken(digest, Instant.now());
             if (tokenEntity.isEmpty()) {
                 log.warn("⚠️ Token not found in database");
                 return null;
@@ -93,6 +113,16 @@ public class TokenHandler {
             // التحقق من حالة التوكن
             if (t.isExpired() || t.isRevoked()) {
                 log.warn("⚠️ Token is expired or revoked");
+                verifiedTokenCache.put(digest,
+                        new VerifiedTokenCache.VerifiedToken(null, userId, epoch, t.getExpiryDate(), true));
+                return null;
+            }
+
+            // التوكن من epoch قديم = اتلغى بـ revokeAll
+            if (!isCurrentEpoch(userId, epoch)) {
+                log.warn("⚠️ Token epoch is outdated");
+                verifiedTokenCache.put(digest,
+                        new VerifiedTokenCache.VerifiedToken(null, userId, epoch, t.getExpiryDate(), true));
                 return null;
             }
 
@@ -118,9 +148,9 @@ public class TokenHandler {
             }
             */
 
-            // جلب المستخدم من قاعدة البيانات
-            return userRepository.findByUsername(username)
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+            verifiedTokenCache.put(digest,
+                    new VerifiedTokenCache.VerifiedToken(principal, userId, epoch, t.getExpiryDate(), false));
+            return principal;
 
         } catch (ExpiredJwtException e) {
             log.warn("⚠️ JWT token expired: {}", e.getMessage());
@@ -140,5 +170,53 @@ public class TokenHandler {
         }
     }
 
+    /**
+     * @return false also when the user no longer exists, so a deleted user's token is just rejected
+     */
+    private boolean isCurrentEpoch(Long userId, long epoch) {
+        try {
+            return epoch == tokenEpochService.currentEpoch(userId);
+        } catch (UserNotFoundException e) {
+            log.warn("⚠️ Token belongs to a deleted user id: {}", userId);
+            return false;
+        }
+    }
+
+    /**
+     * التحقق من التوقيع وقراءة الـ claims
+     *
+     * @return الـ claims إذا كان Access Token، null لأي نوع تاني
+     */
+    private VerifiedClaimsCache.VerifiedClaims parseAccessToken(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        String type = claim(claims, AccessTokenEncoder.CLAIM_TYPE, "type", String.class);
+
+        // التحقق من نوع التوكن
+        if (!AccessTokenEncoder.ACCESS_TYPE.equals(type) && !"ACCESS".equals(type)) {
+            log.warn("⚠️ Invalid token type: {}", type);
+            return null;
+        }
+
+        Long epochClaim = claim(claims, AccessTokenEncoder.CLAIM_EPOCH, "epoch", Long.class);
+        List<?> roleClaim = claim(claims, AccessTokenEncoder.CLAIM_ROLES, "roles", List.class);
+        List<UserRole> roles = roleClaim == null ? List.of()
+                : roleClaim.stream().map(r -> UserRole.valueOf(r.toString())).toList();
+
+        // بناء الـ principal من الـ claims مباشرة بدون تحميل الـ User entity
+        AuthenticatedUser principal = AuthenticatedUser.of(
+                claim(claims, AccessTokenEncoder.CLAIM_USER_ID, "id", Long.class),
+                claim(claims, AccessTokenEncoder.CLAIM_USERNAME, "username", String.class), roles);
+
+        return new VerifiedClaimsCache.VerifiedClaims(
+                principal, epochClaim != null ? epochClaim : 0L, claims.getExpiration().toInstant());
+    }
+
+    /**
+     * قراءة الـ claim بالاسم القصير، أو بالاسم القديم للتوكنات اللي اتصدرت قبل كده
+     */
+    private static <T> T claim(Claims claims, String name, String legacyName, Class<T> type) {
+        return claims.containsKey(name) ? claims.get(name, type) : claims.get(legacyName, type);
+    }
+
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TokenHandler.class);
 }
\ No newline at end of file
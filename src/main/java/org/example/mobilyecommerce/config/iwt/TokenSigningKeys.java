@@ -0,0 +1,198 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signing and verification keys for access tokens, selected by {@code token.signing}.
+ * <p>
+ * New tokens are signed with the current key and carry its {@code kid}. Verification picks the key by
+ * {@code kid}, so retired keys keep working during a rotation; tokens without a {@code kid} were issued
+ * before keys had ids and are checked against the HS512 {@code token.secret}. Public keys of the
+ * asymmetric algorithms are exposed as a JWK set, so other services can verify tokens on their own.
+ */
+@Slf4j
+@Component
+public class TokenSigningKeys {
+
+    private final AccessTokenEncoder encoder;
+    private final Key legacyKey;
+    private final Map<String, VerificationKey> verificationKeys = new HashMap<>();
+    private final List<Map<String, Object>> jwks = new ArrayList<>();
+    private final SigningKeyResolver resolver = new SigningKeyResolverAdapter() {
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            return resolve(header);
+        }
+    };
+
+    public TokenSigningKeys(JwtToken jwtToken) {
+        JwtToken.Signing signing = jwtToken.getSigning();
+        byte[] secret = jwtToken.getSecret().getBytes(StandardCharsets.UTF_8);
+        this.legacyKey = Keys.hmacShaKeyFor(secret);
+
+        JwtToken.Algorithm algorithm = signing.getAlgorithm();
+        Key signingKey;
+        if (algorithm.isHmac()) {
+            signingKey = Keys.hmacShaKeyFor(secret);
+            addVerificationKey(signing.getKeyId(), algorithm, signingKey);
+        } else {
+            signingKey = readPrivateKey(algorithm, required(signing.getPrivateKey(), "private-key"));
+            addVerificationKey(signing.getKeyId(), algorithm,
+                    readPublicKey(algorithm, required(signing.getPublicKey(), "public-key")));
+        }
+        this.encoder = new AccessTokenEncoder(algorithm, signing.getKeyId(), signingKey);
+
+        for (JwtToken.RetiredKey retired : signing.getRetiredKeys()) {
+            addVerificationKey(retired.getKeyId(), retired.getAlgorithm(), retired.getAlgorithm().isHmac()
+                    ? Keys.hmacShaKeyFor(retired.getSecret().getBytes(StandardCharsets.UTF_8))
+                    : readPublicKey(retired.getAlgorithm(), required(retired.getPublicKey(), "public-key")));
+        }
+
+        log.info("🔑 Access tokens signed with {} (kid: {}), {} retired key(s) accepted",
+                algorithm, signing.getKeyId(), signing.getRetiredKeys().size());
+    }
+
+    AccessTokenEncoder encoder() {
+        return encoder;
+    }
+
+    SigningKeyResolver resolver() {
+        return resolver;
+    }
+
+    /**
+     * Public keys as JWKs ({@code kty}, {@code kid}, {@code alg}, {@code use} plus the key parameters).
+     * HMAC keys are secret and never listed.
+     */
+    public List<Map<String, Object>> jwks() {
+        return jwks;
+    }
+
+    private Key resolve(JwsHeader<?> header) {
+        String keyId = header.getKeyId();
+        if (keyId == null) {
+            return legacyKey;
+        }
+        VerificationKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown key id: " + keyId);
+        }
+        // نفس الـ kid لازم يكون بنفس الـ algorithm اللي اتسجل بيه
+        if (!key.algorithm().name().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Algorithm " + header.getAlgorithm() + " does not match key " + keyId);
+        }
+        return key.key();
+    }
+
+    private void addVerificationKey(String keyId, JwtToken.Algorithm algorithm, Key key) {
+        if (verificationKeys.putIfAbsent(keyId, new VerificationKey(algorithm, key)) != null) {
+            throw new IllegalStateException("Duplicate token signing key id: " + keyId);
+        }
+        if (key instanceof PublicKey publicKey) {
+            jwks.add(toJwk(keyId, algorithm, publicKey));
+        }
+    }
+
+    private static Map<String, Object> toJwk(String keyId, JwtToken.Algorithm algorithm, PublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (key instanceof ECPublicKey ec) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(ec.getW().getAffineX(), 32));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), 32));
+        } else if (key instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus(), 0));
+            jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+        }
+        jwk.put("kid", keyId);
+        jwk.put("alg", algorithm.name());
+        jwk.put("use", "sig");
+        return jwk;
+    }
+
+    /**
+     * Unsigned big-endian bytes, left-padded to {@code length} when it is positive.
+     */
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static Key readPrivateKey(JwtToken.Algorithm algorithm, Resource pem) {
+        try {
+            return keyFactory(algorithm).generatePrivate(new PKCS8EncodedKeySpec(readPem(pem)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " private key: " + pem, e);
+        }
+    }
+
+    private static PublicKey readPublicKey(JwtToken.Algorithm algorithm, Resource pem) {
+        try {
+            return keyFactory(algorithm).generatePublic(new X509EncodedKeySpec(readPem(pem)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " public key: " + pem, e);
+        }
+    }
+
+    private static KeyFactory keyFactory(JwtToken.Algorithm algorithm) throws GeneralSecurityException {
+        return KeyFactory.getInstance(algorithm == JwtToken.Algorithm.ES256 ? "EC" : "RSA");
+    }
+
+    private static byte[] readPem(Resource pem) {
+        try {
+            String content = pem.getContentAsString(StandardCharsets.US_ASCII)
+                    .replaceAll("-----(BEGIN|END)[A-Z ]+-----", "")
+                    .replaceAll("\\s", "");
+            return Base64.getDecoder().decode(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read key " + pem, e);
+        }
+    }
+
+    private static Resource required(Resource resource, String property) {
+        if (resource == null) {
+            throw new IllegalStateException("token.signing." + property + " is required for asymmetric algorithms");
+        }
+        return resource;
+    }
+
+    private record VerificationKey(JwtToken.Algorithm algorithm, Key key) {
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Bounded cache of access token claims whose signature was already verified.
+ * <p>
+ * Unlike {@link VerifiedTokenCache}, which holds database state and is kept short-lived, claims never change
+ * for a given token, so entries live until the token's own {@code exp}. When the state entry expires,
+ * re-validation only costs the token row lookup and skips Base64 decoding, HS512 and JSON parsing.
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private final Cache<TokenDigest, VerifiedClaims> cache;
+
+    public VerifiedClaimsCache(JwtToken jwtToken, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(jwtToken.getClaimsCache().getMaxSize())
+                .expireAfter(new Expiry<TokenDigest, VerifiedClaims>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, VerifiedClaims value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, VerifiedClaims value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, VerifiedClaims value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedClaims");
+    }
+
+    public Optional<VerifiedClaims> get(TokenDigest digest) {
+        return Optional.ofNullable(cache.getIfPresent(digest));
+    }
+
+    public void put(TokenDigest digest, VerifiedClaims claims) {
+        cache.put(digest, claims);
+    }
+
+    /**
+     * Claims of a verified {@code ACCESS} token.
+     *
+     * @param principal principal built from the {@code id}, {@code username} and {@code roles} claims
+     * @param epoch     the {@code epoch} claim
+     * @param expiresAt the {@code exp} claim
+     */
+    public record VerifiedClaims(AuthenticatedUser principal, long epoch, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Bounded cache of access tokens that already passed signature and database checks.
+ * <p>
+ * The key is the SHA-256 digest of the raw token, so a hit implies the exact same token was verified before
+ * and no HMAC or SQL is needed. Entries live for at most {@code token.verification-cache.ttl} and never
+ * longer than the token itself; the TTL also bounds how long a revocation made on another node stays unseen.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<TokenDigest, VerifiedToken> cache;
+
+    public VerifiedTokenCache(JwtToken jwtToken, MeterRegistry meterRegistry) {
+        JwtToken.VerificationCache config = jwtToken.getVerificationCache();
+        long ttlNanos = config.getTtl().toNanos();
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfter(new Expiry<TokenDigest, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+                        long untilExpiry = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+                        return Math.max(0, Math.min(ttlNanos, untilExpiry));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+    }
+
+    public Optional<VerifiedToken> get(TokenDigest digest) {
+        return Optional.ofNullable(cache.getIfPresent(digest));
+    }
+
+    public void put(TokenDigest digest, VerifiedToken verifiedToken) {
+        cache.put(digest, verifiedToken);
+    }
+
+    /**
+     * حذف كل التوكنات المخزنة لمستخدم معيّن (عند الـ logout أو إلغاء التوكنات)
+     * <p>
+     * Inside a transaction the entries are dropped again after commit: a request checked between the
+     * first eviction and the commit still sees the old epoch and would put its token right back.
+     */
+    public void invalidateUser(Long userId) {
+        evictUser(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictUser(userId);
+                }
+            });
+        }
+    }
+
+    private void evictUser(Long userId) {
+        boolean removed = cache.asMap().values().removeIf(v -> userId.equals(v.userId()));
+        if (removed) {
+            log.debug("🧹 Evicted cached tokens for user id: {}", userId);
+        }
+    }
+
+    /**
+     * Drop entries whose token is past its expiry date.
+     */
+    public void evictExpired() {
+        Instant now = Instant.now();
+        cache.asMap().values().removeIf(v -> v.expiresAt().isBefore(now));
+        cache.cleanUp();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Snapshot of a token's verified state.
+     *
+     * @param principal the user the token belongs to
+     * @param userId    owner id, used for per-user invalidation
+     * @param epoch     the token epoch claim, compared with the user's current epoch on every hit
+     * @param expiresAt the token expiry date
+     * @param revoked   true if the token was expired or revoked when it was looked up
+     */
+    public record VerifiedToken(AuthenticatedUser principal, Long userId, long epoch, Instant expiresAt, boolean revoked) {
+
+        public boolean isUsable() {
+            return !revoked && expiresAt.isAfter(Instant.now());
+        }
+    }
+}
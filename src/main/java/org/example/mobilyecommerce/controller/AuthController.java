@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
 import org.example.mobilyecommerce.controller.vm.AuthRequestVm;
 import org.example.mobilyecommerce.controller.vm.AuthResponseVm;
 import org.example.mobilyecommerce.controller.vm.ResetPasswordRequest;
@@ -77,16 +78,16 @@ public class AuthController {
      */
     @GetMapping("/hello")
     public ResponseEntity<Map<String, String>> hello(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthenticatedUser user,
             HttpServletRequest request) {
 
         String ip = getClientIp(request);
 
         log.info("👋 Hello request from user: {} (IP: {})",
-                user != null ? user.getUsername() : "unknown", ip);
+                user != null ? user.username() : "unknown", ip);
 
         return ResponseEntity.ok(Map.of(
-                "message", "Hello, " + (user != null ? user.getUsername() : "Guest") + "!",
+                "message", "Hello, " + (user != null ? user.username() : "Guest") + "!",
                 "ip", ip,
                 "status", "secured"
         ));
@@ -115,14 +116,14 @@ public class AuthController {
      * يستخدم @AuthenticationPrincipal للحصول على المستخدم الحالي من الـ JWT
      */
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, String>> logout(@AuthenticationPrincipal User user) {
-        log.info("🚪 Logout request for user: {}", user.getUsername());
+    public ResponseEntity<Map<String, String>> logout(@AuthenticationPrincipal AuthenticatedUser user) {
+        log.info("🚪 Logout request for user: {}", user.username());
 
         authService.logout(user);
 
         return ResponseEntity.ok(Map.of(
                 "message", "Logged out successfully",
-                "username", user.getUsername()
+                "username", user.username()
         ));
     }
 
@@ -0,0 +1,29 @@
+package org.example.mobilyecommerce.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.mobilyecommerce.config.iwt.TokenSigningKeys;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Public keys for verifying access tokens without calling this service.
+ * Empty while tokens are signed with an HMAC secret.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final TokenSigningKeys tokenSigningKeys;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(Map.of("keys", tokenSigningKeys.jwks()));
+    }
+}
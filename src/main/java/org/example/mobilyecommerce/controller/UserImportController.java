@@ -0,0 +1,64 @@
+package org.example.mobilyecommerce.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.service.UserImportServiceInterface;
+import org.example.mobilyecommerce.service.UserImportServiceInterface.Format;
+import org.example.mobilyecommerce.service.UserImportServiceInterface.ImportJob;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Admin bulk import of users migrated from other shops.
+ * The request body is streamed to disk, never buffered in memory, so files of any size can be posted.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/admin/users")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserImportServiceInterface userImportService;
+
+    /**
+     * 📥 Import users from NDJSON ({@code application/x-ndjson}) or CSV ({@code text/csv}).
+     * The file is imported in the background: 202 with the job, whose report lists the rows that were skipped.
+     * No tokens are issued.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = {NDJSON, "text/csv"})
+    public ResponseEntity<ImportJob> importUsers(HttpServletRequest request) throws IOException {
+        Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(NDJSON))
+                ? Format.NDJSON : Format.CSV;
+        log.info("📥 User import ({}) requested by: {}", format, request.getUserPrincipal().getName());
+
+        ImportJob job = userImportService.submit(request.getInputStream(), format);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/admin/users/import/" + job.id()))
+                .body(job);
+    }
+
+    /**
+     * 🔎 Status of an import job, with its report once it is done.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ImportJob> importStatus(@PathVariable UUID id) {
+        return userImportService.findJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
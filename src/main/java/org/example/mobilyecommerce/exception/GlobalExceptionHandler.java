@@ -2,6 +2,7 @@ package org.example.mobilyecommerce.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authorization.AuthorizationDeniedException;
@@ -101,7 +102,8 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler({
             InvalidCredentialsException.class,
-            TokenExpiredException.class
+            TokenExpiredException.class,
+            InvalidImportFileException.class
     })
     public ResponseEntity<ErrorDetails> handleBadRequestExceptions(
             RuntimeException ex,
@@ -113,6 +115,19 @@ public class GlobalExceptionHandler {
                 .body(buildErrorDetails(request, HttpStatus.BAD_REQUEST, ex.getMessage()));
     }
 
+    // ✅ الـ password hashing pool مشغول - يرجع 503 مع Retry-After
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorDetails> handlePasswordHashingBusy(
+            PasswordHashingBusyException ex,
+            HttpServletRequest request) {
+
+        log.warn("Service Unavailable: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(buildErrorDetails(request, HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDetails> handleAllExceptions(
             Exception ex,
@@ -0,0 +1,7 @@
+package org.example.mobilyecommerce.exception;
+
+public class InvalidImportFileException extends RuntimeException {
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.mobilyecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Shared rate-limit bucket state ({@code rate-limit.store=jdbc}). Read and written with plain JDBC by
+ * {@code JdbcBucketProxyManager}; mapped here so the table is created with the rest of the schema.
+ */
+@Entity
+@Table(name = "rate_limit_bucket",
+        indexes = @Index(name = "idx_rate_limit_bucket_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class RateLimitBucket {
+
+    /**
+     * Hex SHA-256 of the bucket key, which embeds the User-Agent and can be of any length.
+     */
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    /**
+     * Serialized Bucket4j state; null until the first request initialises it.
+     */
+    @Column(length = 4096)
+    private byte[] state;
+
+    /**
+     * Epoch millis after which the bucket is full again and the row can be dropped.
+     */
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
@@ -7,6 +7,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_refresh_token_expiry_date", columnList = "expiry_date"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,9 +23,24 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false, unique = true, length = 1000)
+    /**
+     * القيمة الأصلية للتوكن - تُحفظ فقط لو token.storage.keep-raw-value = true
+     */
+    @Column(length = 1000)
     private String token;
 
+    /**
+     * SHA-256 digest of the raw token, used for every lookup.
+     */
+    @Column(name = "token_hash", unique = true, length = 32)
+    private byte[] tokenHash;
+
+    /**
+     * The value handed to the client. Only populated on the instance returned at creation time.
+     */
+    @Transient
+    private String rawToken;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_token_expiry_date", columnList = "expiry_date"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,9 +17,18 @@ public class Token {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false, length = 1000)
+    /**
+     * القيمة الأصلية للـ JWT - تُحفظ فقط لو token.storage.keep-raw-value = true
+     */
+    @Column(length = 1000)
     private String token;
 
+    /**
+     * SHA-256 digest of the raw token, used for every lookup.
+     */
+    @Column(name = "token_hash", unique = true, length = 32)
+    private byte[] tokenHash;
+
     @Column(nullable = false)
     private boolean revoked = false;
 
@@ -14,11 +14,18 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "user_eco") // استخدم underscore بدل dash
+@Table(name = "user_eco", // استخدم underscore بدل dash
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+                @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username")
+        })
 @ToString
 
 public class User {
 
+    public static final String UK_EMAIL = "uk_user_eco_email";
+    public static final String UK_USERNAME = "uk_user_eco_username";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -31,6 +38,13 @@ public class User {
 
     private String phone;
 
+    /**
+     * رقم الجلسة الحالي - كل Access Token يحمل نفس الرقم في الـ claims.
+     * زيادة الرقم تلغي كل التوكنات القديمة للمستخدم مرة واحدة.
+     */
+    @Column(name = "token_epoch", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long tokenEpoch;
+
 //    private String address;
 
     @OneToMany(mappedBy = "user", fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
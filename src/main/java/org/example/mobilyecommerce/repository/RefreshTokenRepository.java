@@ -1,6 +1,7 @@
 package org.example.mobilyecommerce.repository;
 
 import org.example.mobilyecommerce.model.RefreshToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -16,6 +17,32 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
 
     Optional<RefreshToken> findByToken(String token);
 
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    /**
+     * The expiry predicate lets a partitioned table prune every expired partition
+     */
+    Optional<RefreshToken> findByTokenHashAndExpiryDateAfter(byte[] tokenHash, Instant now);
+
+    /**
+     * Valid refresh token together with its user and roles, in a single query
+     */
+    @Query("""
+        SELECT rt FROM RefreshToken rt
+        JOIN FETCH rt.user u
+        LEFT JOIN FETCH u.roles
+        WHERE rt.tokenHash = :tokenHash
+        AND rt.expiryDate > :now
+        AND rt.expired = false
+        """)
+    Optional<RefreshToken> findValidWithUser(@Param("tokenHash") byte[] tokenHash, @Param("now") Instant now);
+
+    /**
+     * Rows written before digest storage existed (used by the backfill at startup)
+     */
+    @Query("SELECT rt FROM RefreshToken rt WHERE rt.tokenHash IS NULL AND rt.token IS NOT NULL")
+    List<RefreshToken> findWithoutHash(Pageable pageable);
+
     /**
      * البحث عن جميع tokens للمستخدم (للتشخيص)
      */
@@ -35,21 +62,9 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     int deleteAllByUserId(@Param("userId") Long userId);
 
     /**
-     * Mark refresh tokens as expired where expiryDate has passed
-     */
-    @Modifying
-    @Query("""
-        UPDATE RefreshToken rt
-        SET rt.expired = true
-        WHERE rt.expiryDate < :now
-        AND rt.expired = false
-        """)
-    int markExpiredRefreshTokens(@Param("now") Instant now);
-
-    /**
-     * Delete refresh tokens that are marked as expired
+     * Delete up to {@code limit} refresh tokens whose expiryDate has passed (range scan on idx_refresh_token_expiry_date)
      */
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.expired = true")
-    int deleteExpiredRefreshTokens();
+    @Query(value = "DELETE FROM refresh_token WHERE expiry_date < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Instant now, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.example.mobilyecommerce.repository;
 
 import org.example.mobilyecommerce.model.Token;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -16,6 +17,19 @@ public interface TokenRepository extends JpaRepository<Token, Long> {
 
     Optional<Token> findByToken(String token);
 
+    Optional<Token> findByTokenHash(byte[] tokenHash);
+
+    /**
+     * The expiry predicate lets a partitioned table prune every expired partition
+     */
+    Optional<Token> findByTokenHashAndExpiryDateAfter(byte[] tokenHash, Instant now);
+
+    /**
+     * Rows written before digest storage existed (used by the backfill at startup)
+     */
+    @Query("SELECT t FROM Token t WHERE t.tokenHash IS NULL AND t.token IS NOT NULL")
+    List<Token> findWithoutHash(Pageable pageable);
+
     @Query("""
         SELECT t FROM Token t
         WHERE t.user.id = :userId 
@@ -25,24 +39,12 @@ public interface TokenRepository extends JpaRepository<Token, Long> {
     List<Token> findAllValidTokenByUser(@Param("userId") Long userId);
 
     /**
-     * Mark tokens as expired where expiryDate has passed
+     * Delete up to {@code limit} tokens whose expiryDate has passed (range scan on idx_token_expiry_date)
      * ⚠️ استخدم < بدل <= عشان نتجنب مشاكل الـ timing
      */
     @Modifying
-    @Query("""
-        UPDATE Token t
-        SET t.expired = true
-        WHERE t.expiryDate < :now
-        AND t.expired = false
-        """)
-    int markExpiredTokens(@Param("now") Instant now);
-
-    /**
-     * Delete tokens that are expired OR revoked
-     */
-    @Modifying
-    @Query("DELETE FROM Token t WHERE t.expired = true OR t.revoked = true")
-    int deleteExpiredAndRevokedTokens();
+    @Query(value = "DELETE FROM token WHERE expiry_date < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Instant now, @Param("limit") int limit);
 
 
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.example.mobilyecommerce.service;
 
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
 import org.example.mobilyecommerce.controller.vm.AuthRequestVm;
 import org.example.mobilyecommerce.controller.vm.AuthResponseVm;
 import org.example.mobilyecommerce.model.User;
@@ -13,5 +14,5 @@ public interface AuthServiceInterface {
     AuthResponseVm refresh(String refreshTokenValue, String ip, String agent);
 
     Boolean resetPassword(String username, String newPassword);
-    void logout(User user);
+    void logout(AuthenticatedUser principal);
 }
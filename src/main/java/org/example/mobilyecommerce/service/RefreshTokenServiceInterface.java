@@ -3,6 +3,8 @@ package org.example.mobilyecommerce.service;
 import org.example.mobilyecommerce.model.RefreshToken;
 import org.example.mobilyecommerce.model.User;
 
+import java.util.Optional;
+
 public interface RefreshTokenServiceInterface {
 
     RefreshToken createRefreshToken(User user);
@@ -11,9 +13,19 @@ public interface RefreshTokenServiceInterface {
 
     void deleteByUser(User user);
 
-    boolean isValid(String token);
-
-    int markExpiredTokens();
-
-    int deleteExpiredTokens();
+    /**
+     * Resolves a valid refresh token with its user and roles already loaded.
+     *
+     * @param token the raw refresh token
+     * @return the token, or empty if it is unknown or expired
+     */
+    Optional<RefreshToken> findValid(String token);
+
+    /**
+     * The refresh token to hand back to {@code user} after a refresh.
+     *
+     * @param token the raw refresh token that was just used
+     * @return a successor for signed tokens, {@code token} itself otherwise
+     */
+    String rotate(String token, User user);
 }
\ No newline at end of file
@@ -1,10 +1,31 @@
 package org.example.mobilyecommerce.service;
 
+import java.time.Duration;
+import java.util.List;
+
 public interface TokenCleanupServiceInterface {
 
-    void markExpiredTokens();
+    /**
+     * Deletes expired access and refresh tokens in bounded batches.
+     *
+     * @return one report per token table
+     */
+    List<CleanupReport> purgeExpiredTokens();
 
-    void deleteExpiredTokens();
+    /**
+     * Result of cleaning one table.
+     *
+     * @param table    table name
+     * @param rows     rows deleted
+     * @param batches  DELETE statements executed
+     * @param elapsed  wall time of the run, pauses included
+     * @param lockTime time spent inside DELETE transactions, i.e. while row locks were held
+     */
+    record CleanupReport(String table, long rows, int batches, Duration elapsed, Duration lockTime) {
 
-    void cleanupNow();
-}
\ No newline at end of file
+        public long rowsPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return rows * 1000 / millis;
+        }
+    }
+}
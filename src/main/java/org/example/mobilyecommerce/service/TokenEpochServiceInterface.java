@@ -0,0 +1,21 @@
+package org.example.mobilyecommerce.service;
+
+/**
+ * Per-user session epoch carried in every access token.
+ * A token is only accepted while its epoch matches the user's current one.
+ */
+public interface TokenEpochServiceInterface {
+
+    /**
+     * @param userId the user id
+     * @return the user's current epoch
+     */
+    long currentEpoch(Long userId);
+
+    /**
+     * Invalidates all access tokens of the user by moving to the next epoch.
+     *
+     * @param userId the user id
+     */
+    void revokeAll(Long userId);
+}
@@ -0,0 +1,38 @@
+package org.example.mobilyecommerce.service;
+
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.RefreshToken;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.service.TokenCleanupServiceInterface.CleanupReport;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistence of issued access and refresh tokens, always addressed by their {@link TokenDigest}.
+ * The implementation is chosen with {@code token.store.type}.
+ */
+public interface TokenStore {
+
+    /**
+     * Stores an access token once the current transaction (if any) commits.
+     */
+    void saveAccessToken(TokenDigest digest, Token token);
+
+    Optional<Token> findAccessToken(TokenDigest digest, Instant now);
+
+    RefreshToken saveRefreshToken(TokenDigest digest, RefreshToken token);
+
+    /**
+     * Refresh token that is neither expired nor flagged, with its user and roles loaded.
+     */
+    Optional<RefreshToken> findRefreshToken(TokenDigest digest, Instant now);
+
+    /**
+     * @return number of refresh tokens removed
+     */
+    int deleteRefreshTokens(Long userId);
+
+    List<CleanupReport> purgeExpired(Instant now);
+}
@@ -0,0 +1,63 @@
+package org.example.mobilyecommerce.service;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserImportServiceInterface {
+
+    /**
+     * Streams users from {@code in} and inserts them without issuing tokens.
+     * Rows that fail validation or already exist are skipped and reported.
+     */
+    ImportReport importUsers(InputStream in, Format format);
+
+    /**
+     * Copies {@code in} to a temporary file and imports it in the background.
+     *
+     * @return the queued job; poll {@link #findJob(UUID)} for its report
+     */
+    ImportJob submit(InputStream in, Format format);
+
+    /**
+     * @return the job, empty once it is older than {@code user-import.job-retention}
+     */
+    Optional<ImportJob> findJob(UUID id);
+
+    enum Format {
+        /** One {@code UserDto} JSON object per line. */
+        NDJSON,
+        /** Header line with {@code username,email,password,phone[,roles]}; roles separated by {@code |}. */
+        CSV
+    }
+
+    enum JobStatus {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * @param report set once the job is {@code DONE}
+     * @param error  set when the job is {@code FAILED}
+     */
+    record ImportJob(UUID id, Format format, JobStatus status, Instant submittedAt, ImportReport report, String error) {
+
+        public ImportJob withStatus(JobStatus status, ImportReport report, String error) {
+            return new ImportJob(id, format, status, submittedAt, report, error);
+        }
+    }
+
+    /**
+     * @param line   1-based line number in the uploaded file
+     * @param reason why the row was skipped
+     */
+    record RowFailure(long line, String reason) {
+    }
+
+    /**
+     * @param failures first {@code user-import.max-reported-failures} failures, in file order
+     */
+    record ImportReport(long rows, long imported, long failed, List<RowFailure> failures, long elapsedMillis) {
+    }
+}
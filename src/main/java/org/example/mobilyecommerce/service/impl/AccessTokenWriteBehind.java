@@ -0,0 +1,212 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.Token;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind persistence for issued access tokens ({@code token.write-behind.enabled}).
+ * <p>
+ * Tokens are queued once the issuing transaction commits and written with JDBC batch inserts every
+ * {@code flush-interval} or as soon as {@code batch-size} tokens are waiting. Until a token is flushed,
+ * {@link #findPending(TokenDigest)} lets validation find it in memory. When the queue is full the token
+ * is written synchronously, so issuance never fails because of the buffer. The same happens once the
+ * flusher has shut down.
+ * <p>
+ * The pending tokens live on the node that issued them only. Behind a load balancer, a request reaching
+ * another node within {@code flush-interval} of login won't find its token yet and is rejected, so use
+ * sticky sessions or keep the interval short.
+ * <p>
+ * For MySQL, add {@code rewriteBatchedStatements=true} to the JDBC URL so batches become multi-row inserts.
+ */
+@Slf4j
+@Component
+public class AccessTokenWriteBehind {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO token (token, token_hash, revoked, expired, created_at, expiry_date, ip_address, user_agent, user_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JwtToken.WriteBehind config;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final BlockingQueue<PendingToken> queue;
+    // التوكنات اللي اتعملت على النود دي بس - النودز التانية مش شايفاها لحد الـ flush
+    private final Map<TokenDigest, Token> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public AccessTokenWriteBehind(JwtToken jwtToken, JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.config = jwtToken.getWriteBehind();
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        meterRegistry.gauge("token.write_behind.queue", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("💾 Access token write-behind enabled (batch size: {}, interval: {} ms)",
+                config.getBatchSize(), interval);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        // تفريغ الباقي قبل الإغلاق
+        while (!queue.isEmpty()) {
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Queue the token for persistence once the current transaction commits.
+     */
+    public void submit(TokenDigest digest, Token token) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(digest, token);
+                }
+            });
+        } else {
+            enqueue(digest, token);
+        }
+    }
+
+    /**
+     * Token issued on this node but not flushed yet.
+     */
+    public Optional<Token> findPending(TokenDigest digest) {
+        return Optional.ofNullable(pending.get(digest));
+    }
+
+    private void enqueue(TokenDigest digest, Token token) {
+        if (flusher.isShutdown()) {
+            // التطبيق بيقفل: مفيش flush تاني هيحصل
+            requiresNew.executeWithoutResult(status -> insertBatch(List.of(token)));
+            return;
+        }
+        pending.put(digest, token);
+        if (!queue.offer(new PendingToken(digest, token))) {
+            // الـ buffer مليان: نكتب التوكن مباشرة بدل ما نستنى
+            log.warn("⚠️ Write-behind queue full — writing access token synchronously");
+            requiresNew.executeWithoutResult(status -> insertBatch(List.of(token)));
+            pending.remove(digest);
+            return;
+        }
+        if (queue.size() >= config.getBatchSize()) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // الـ flusher اتقفل بين الـ check والـ execute
+                flush();
+            }
+        }
+    }
+
+    private synchronized void flush() {
+        List<PendingToken> batch = new ArrayList<>(config.getBatchSize());
+        queue.drainTo(batch, config.getBatchSize());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Token> tokens = batch.stream().map(PendingToken::token).toList();
+        try {
+            requiresNew.executeWithoutResult(status -> insertBatch(tokens));
+            log.debug("💾 Flushed {} access token(s)", tokens.size());
+        } catch (RuntimeException e) {
+            // نكمل صف صف عشان صف واحد بايظ ما يضيعش الـ batch كله
+            log.error("❌ Batch insert of {} access token(s) failed: {} — retrying row by row",
+                    tokens.size(), e.getMessage());
+            for (Token token : tokens) {
+                try {
+                    requiresNew.executeWithoutResult(status -> insertBatch(List.of(token)));
+                } catch (RuntimeException rowError) {
+                    log.error("❌ Dropping access token for user id {}: {}",
+                            token.getUser().getId(), rowError.getMessage());
+                }
+            }
+        } finally {
+            batch.forEach(p -> pending.remove(p.digest()));
+        }
+    }
+
+    private void insertBatch(List<Token> tokens) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, tokens, tokens.size(), this::bind);
+    }
+
+    private void bind(PreparedStatement ps, Token t) throws SQLException {
+        ps.setString(1, t.getToken());
+        ps.setBytes(2, t.getTokenHash());
+        ps.setBoolean(3, t.isRevoked());
+        ps.setBoolean(4, false);
+        ps.setTimestamp(5, Timestamp.from(t.getCreatedAt()), utc());
+        ps.setTimestamp(6, Timestamp.from(t.getExpiryDate()), utc());
+        ps.setString(7, t.getIpAddress());
+        ps.setString(8, t.getUserAgent());
+        ps.setLong(9, t.getUser().getId());
+    }
+
+    /**
+     * Hibernate stores Instant columns in UTC; raw JDBC writes must match
+     */
+    private static Calendar utc() {
+        return Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
+    }
+
+    private record PendingToken(TokenDigest digest, Token token) {
+    }
+}
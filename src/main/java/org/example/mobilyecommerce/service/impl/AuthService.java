@@ -2,7 +2,12 @@
 
     import lombok.RequiredArgsConstructor;
     import lombok.extern.slf4j.Slf4j;
+    import org.example.mobilyecommerce.config.UserAccount;
+    import org.example.mobilyecommerce.config.UserAccountCache;
+    import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+    import org.example.mobilyecommerce.config.iwt.TokenDigest;
     import org.example.mobilyecommerce.config.iwt.TokenHandler;
+    import org.example.mobilyecommerce.config.iwt.VerifiedTokenCache;
     import org.example.mobilyecommerce.controller.vm.AuthRequestVm;
     import org.example.mobilyecommerce.controller.vm.AuthResponseVm;
     import org.example.mobilyecommerce.exception.InvalidCredentialsException;
@@ -12,17 +17,23 @@
     import org.example.mobilyecommerce.model.RefreshToken;
     import org.example.mobilyecommerce.model.Token;
     import org.example.mobilyecommerce.model.User;
-    import org.example.mobilyecommerce.repository.TokenRepository;
     import org.example.mobilyecommerce.service.AuthServiceInterface;
     import org.example.mobilyecommerce.service.RefreshTokenServiceInterface;
+    import org.example.mobilyecommerce.service.TokenEpochServiceInterface;
+    import org.example.mobilyecommerce.service.TokenStore;
     import org.example.mobilyecommerce.repository.UserRepository;
+    import org.hibernate.exception.ConstraintViolationException;
+    import org.springframework.dao.DataIntegrityViolationException;
     import org.springframework.security.authentication.AuthenticationManager;
     import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+    import org.springframework.security.core.Authentication;
     import org.springframework.security.crypto.password.PasswordEncoder;
     import org.springframework.stereotype.Service;
     import org.springframework.transaction.annotation.Transactional;
+    import org.springframework.transaction.support.TransactionTemplate;
 
     import java.time.Instant;
+    import java.util.Locale;
     import java.util.Optional;
 
     @Service
@@ -31,9 +42,14 @@
     public class AuthService implements AuthServiceInterface {
 
         private final UserRepository userRepository;
-        private final TokenRepository tokenRepository;
+        private final TokenStore tokenStore;
         private final RefreshTokenServiceInterface refreshTokenService;
         private final TokenHandler tokenHandler;
+        private final VerifiedTokenCache verifiedTokenCache;
+        private final TokenEpochServiceInterface tokenEpochService;
+        private final UserAccountCache userAccountCache;
+        private final RefreshCoalescer refreshCoalescer;
+        private final TransactionTemplate transactionTemplate;
         private final PasswordEncoder passwordEncoder;
         private final AuthenticationManager authenticationManager;
 
@@ -42,13 +58,16 @@
         public AuthResponseVm signup(User user, String ip, String agent) {
             log.info("🔐 Signup attempt for username: {} from IP: {}", user.getEmail(), ip);
 
-            if (userRepository.findByEmail(user.getEmail()).isPresent()) {
-                log.warn("⚠️ Username already exists: {}", user.getUsername());
-                throw new UserAlreadyExistsException("Username already exists: " + user.getUsername());
-            }
-
             user.setPassword(passwordEncoder.encode(user.getPassword()));
-            User savedUser = userRepository.save(user);
+
+            // ✅ الـ unique indexes هي اللي بتمنع التكرار - بدون query قبل الـ insert
+            User savedUser;
+            try {
+                savedUser = userRepository.saveAndFlush(user);
+            } catch (DataIntegrityViolationException e) {
+                throw toUserAlreadyExists(user, e).orElseThrow(() -> e);
+            }
+            userAccountCache.evict(savedUser.getEmail());
 
             String accessToken = tokenHandler.createAccessToken(savedUser);
             RefreshToken refreshToken = refreshTokenService.createRefreshToken(savedUser);
@@ -56,7 +75,7 @@
             saveAccessToken(savedUser, accessToken, ip, agent);
 
             log.info("✅ New user created: {} from IP: {}", savedUser.getUsername(), ip);
-            return new AuthResponseVm(accessToken, refreshToken.getToken());
+            return new AuthResponseVm(accessToken, refreshToken.getRawToken());
         }
 
     //    @Override
@@ -86,43 +105,53 @@
         public AuthResponseVm login(AuthRequestVm login, String ip, String agent) {
             log.info("🔐 Login attempt for username: {} from IP: {}", login.getEmail(), ip);
 
-            authenticationManager.authenticate(
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(login.getEmail(), login.getPassword())
             );
 
-            // ✅ التعديل: استخدام findByEmail بدلاً من findByUsername
-            User user = userRepository.findByEmail(login.getEmail())
-                    .orElseThrow(() -> new InvalidCredentialsException("User not found: " + login.getEmail()));
+            // ✅ نفس المستخدم اللي حمّله الـ provider - بدون query تاني
+            if (!(authentication.getPrincipal() instanceof UserAccount account)) {
+                throw new InvalidCredentialsException("User not found: " + login.getEmail());
+            }
+            User user = userRepository.getReferenceById(account.getId());
 
-            String accessToken = tokenHandler.createAccessToken(user);
+            String accessToken = tokenHandler.createAccessToken(account.toPrincipal());
             RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
 
             saveAccessToken(user, accessToken, ip, agent);
 
-            log.info("✅ User logged in successfully: {} from IP: {}", user.getUsername(), ip);
-            return new AuthResponseVm(accessToken, refreshToken.getToken());
+            log.info("✅ User logged in successfully: {} from IP: {}", account.toPrincipal().username(), ip);
+            return new AuthResponseVm(accessToken, refreshToken.getRawToken());
         }
 
         @Override
-        @Transactional
         public AuthResponseVm refresh(String refreshTokenValue, String ip, String agent) {
             log.info("🔄 Refresh token request from IP: {}", ip);
 
-            if (!refreshTokenService.isValid(refreshTokenValue)) {
-                log.warn("⚠️ Invalid or expired refresh token");
-                throw new TokenExpiredException("Refresh token is invalid or expired");
-            }
+            // الطلبات المتوازية بنفس الـ refresh token بتاخد نفس الـ access token
+            // الـ transaction لازم تخلص (commit) قبل ما الطلبات المستنية تاخد النتيجة
+            return refreshCoalescer.coalesce(refreshTokenValue,
+                    () -> transactionTemplate.execute(status -> issueRefreshedAccessToken(refreshTokenValue, ip, agent)));
+        }
 
-            RefreshToken refreshToken = refreshTokenService.getByToken(refreshTokenValue);
+        private AuthResponseVm issueRefreshedAccessToken(String refreshTokenValue, String ip, String agent) {
+            // استعلام واحد: التوكن + المستخدم + الـ roles
+            RefreshToken refreshToken = refreshTokenService.findValid(refreshTokenValue)
+                    .orElseThrow(() -> {
+                        log.warn("⚠️ Invalid or expired refresh token");
+                        return new TokenExpiredException("Refresh token is invalid or expired");
+                    });
             User user = refreshToken.getUser();
 
             revokeAllUserAccessTokens(user);
 
             String newAccessToken = tokenHandler.createAccessToken(user);
             saveAccessToken(user, newAccessToken, ip, agent);
+            // الـ signed refresh token بيتستخدم مرة واحدة - بنرجّع الجيل اللي بعده من نفس الـ family
+            String nextRefreshToken = refreshTokenService.rotate(refreshTokenValue, user);
 
             log.info("🔄 New access token issued for user: {} from IP: {}", user.getUsername(), ip);
-            return new AuthResponseVm(newAccessToken, refreshTokenValue);
+            return new AuthResponseVm(newAccessToken, nextRefreshToken);
         }
 
         @Override
@@ -139,6 +168,7 @@
 
             // 3️⃣ تشفير كلمة السر الجديدة وتحديثها مباشرة
             user.setPassword(passwordEncoder.encode(newPassword));
+            userAccountCache.evict(user.getEmail());
 
             // 4️⃣ حفظ التعديل (بسبب @Transactional يكفي التعديل على الكائن فقط)
             // لا تحتاج إلى userRepository.save(user) هنا إلا لو عندك detached entity
@@ -148,8 +178,11 @@
 
         @Override
         @Transactional  // ✅ مهم جداً!
-        public void logout(User user) {
-            log.info("🚪 Logout request for user: {}", user.getUsername());
+        public void logout(AuthenticatedUser principal) {
+            log.info("🚪 Logout request for user: {}", principal.username());
+
+            // الـ User entity بيتحمل lazily لو احتاجناه فعلاً
+            User user = userRepository.getReferenceById(principal.id());
 
             try {
                 // 1. إلغاء Access Tokens
@@ -160,7 +193,10 @@
                 refreshTokenService.deleteByUser(user);
                 log.debug("✅ Deleted all refresh tokens");
 
-                log.info("✅ User logged out successfully: {}", user.getUsername());
+                // 3. حذف التوكنات من الـ cache
+                verifiedTokenCache.invalidateUser(user.getId());
+
+                log.info("✅ User logged out successfully: {}", principal.username());
 
             } catch (Exception e) {
                 log.error("❌ Error during logout: {}", e.getMessage(), e);
@@ -169,13 +205,34 @@
         }
         // ---------------- Internal helpers ----------------
 
+        /**
+         * ترجمة مخالفة الـ unique index على username أو email
+         *
+         * @return empty لو المخالفة على constraint تاني
+         */
+        private Optional<UserAlreadyExistsException> toUserAlreadyExists(User user, DataIntegrityViolationException e) {
+            String constraint = e.getCause() instanceof ConstraintViolationException cve
+                    ? cve.getConstraintName() : e.getMostSpecificCause().getMessage();
+            if (constraint != null && constraint.toLowerCase(Locale.ROOT).contains(User.UK_USERNAME)) {
+                log.warn("⚠️ Username already exists: {}", user.getUsername());
+                return Optional.of(new UserAlreadyExistsException("Username already exists: " + user.getUsername()));
+            }
+            if (constraint != null && constraint.toLowerCase(Locale.ROOT).contains(User.UK_EMAIL)) {
+                log.warn("⚠️ Email already exists: {}", user.getEmail());
+                return Optional.of(new UserAlreadyExistsException("Email already exists: " + user.getEmail()));
+            }
+            return Optional.empty();
+        }
+
         /**
          * حفظ Access Token في قاعدة البيانات
          */
         private void saveAccessToken(User user, String jwtToken, String ip, String agent) {
             Instant now = Instant.now();
+            TokenDigest digest = TokenDigest.of(jwtToken);
             Token token = Token.builder()
-                    .token(jwtToken)
+                    .token(tokenHandler.isKeepRawTokenValue() ? jwtToken : null)
+                    .tokenHash(digest.bytes())
                     .user(user)
                     .expired(false)
                     .revoked(false)
@@ -184,22 +241,16 @@
                     .createdAt(now)
                     .expiryDate(now.plus(tokenHandler.getAccessTime()))
                     .build();
-            tokenRepository.save(token);
-            log.debug("💾 Access token saved for user: {} with IP: {}", user.getUsername(), ip);
+            tokenStore.saveAccessToken(digest, token);
+            log.debug("💾 Access token saved for user id: {} with IP: {}", user.getId(), ip);
         }
 
         /**
          * إلغاء جميع الـ Access Tokens النشطة للمستخدم
+         * (UPDATE واحد على الـ token epoch بدل تعديل كل التوكنات)
          */
         private void revokeAllUserAccessTokens(User user) {
-            var tokens = tokenRepository.findAllValidTokenByUser(user.getId());
-            if (!tokens.isEmpty()) {
-                tokens.forEach(t -> {
-                    t.setExpired(true);
-                    t.setRevoked(true);
-                });
-                tokenRepository.saveAll(tokens);
-                log.debug("🔒 Revoked {} access tokens for user: {}", tokens.size(), user.getUsername());
-            }
+            tokenEpochService.revokeAll(user.getId());
+            log.debug("🔒 Revoked all access tokens for user: {}", user.getUsername());
         }
     }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package org.example.mobilyecommerce.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.RefreshToken;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.repository.RefreshTokenRepository;
+import org.example.mobilyecommerce.repository.TokenRepository;
+import org.example.mobilyecommerce.service.TokenCleanupServiceInterface.CleanupReport;
+import org.example.mobilyecommerce.service.TokenStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Default {@link TokenStore}: the {@code token} and {@code refresh_token} tables.
+ * <p>
+ * Access tokens go through {@link AccessTokenWriteBehind} when it is enabled. Expired rows are deleted by
+ * {@code expiry_date < now}, one bounded batch per transaction. Each statement is a range scan on the expiry
+ * index and holds its locks only for that batch, with a short pause in between so logins are never stalled
+ * behind a long-running DELETE. With partitioning enabled, whole expired partitions are dropped first.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "token.store", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class JpaTokenStore implements TokenStore {
+
+    private final TokenRepository tokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final AccessTokenWriteBehind accessTokenWriteBehind;
+    private final TokenPartitionManager tokenPartitionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final JwtToken.Cleanup cleanup;
+
+    public JpaTokenStore(TokenRepository tokenRepository, RefreshTokenRepository refreshTokenRepository,
+                         AccessTokenWriteBehind accessTokenWriteBehind, TokenPartitionManager tokenPartitionManager,
+                         PlatformTransactionManager transactionManager, JwtToken jwtToken) {
+        this.tokenRepository = tokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.accessTokenWriteBehind = accessTokenWriteBehind;
+        this.tokenPartitionManager = tokenPartitionManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cleanup = jwtToken.getCleanup();
+    }
+
+    @Override
+    public void saveAccessToken(TokenDigest digest, Token token) {
+        if (accessTokenWriteBehind.isEnabled()) {
+            accessTokenWriteBehind.submit(digest, token);
+        } else {
+            tokenRepository.save(token);
+        }
+    }
+
+    @Override
+    public Optional<Token> findAccessToken(TokenDigest digest, Instant now) {
+        Optional<Token> token = tokenRepository.findByTokenHashAndExpiryDateAfter(digest.bytes(), now);
+        // ممكن يكون لسه في الـ write-behind buffer
+        return token.isPresent() ? token : accessTokenWriteBehind.findPending(digest);
+    }
+
+    @Override
+    public RefreshToken saveRefreshToken(TokenDigest digest, RefreshToken token) {
+        return refreshTokenRepository.save(token);
+    }
+
+    @Override
+    public Optional<RefreshToken> findRefreshToken(TokenDigest digest, Instant now) {
+        // استعلام واحد: التوكن + المستخدم + الـ roles
+        return refreshTokenRepository.findValidWithUser(digest.bytes(), now);
+    }
+
+    @Override
+    public int deleteRefreshTokens(Long userId) {
+        return refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Override
+    public List<CleanupReport> purgeExpired(Instant now) {
+        return List.of(
+                purge("token", now, tokenRepository::deleteExpiredBatch),
+                purge("refresh_token", now, refreshTokenRepository::deleteExpiredBatch));
+    }
+
+    private CleanupReport purge(String table, Instant now, BiFunction<Instant, Integer, Integer> deleteBatch) {
+        int batchSize = cleanup.getBatchSize();
+        long started = System.nanoTime();
+        long lockNanos = 0;
+        long rows = 0;
+        int batches = 0;
+
+        if (tokenPartitionManager.isEnabled()) {
+            long dropStart = System.nanoTime();
+            tokenPartitionManager.maintain(table, now);
+            lockNanos += System.nanoTime() - dropStart;
+        }
+
+        while (true) {
+            long batchStart = System.nanoTime();
+            Integer deleted = transactionTemplate.execute(status -> deleteBatch.apply(now, batchSize));
+            lockNanos += System.nanoTime() - batchStart;
+            batches++;
+            rows += deleted;
+
+            if (deleted < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+
+        return new CleanupReport(table, rows, batches,
+                Duration.ofNanos(System.nanoTime() - started), Duration.ofNanos(lockNanos));
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(cleanup.getPause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("⚠️ Token cleanup interrupted");
+            return false;
+        }
+    }
+}
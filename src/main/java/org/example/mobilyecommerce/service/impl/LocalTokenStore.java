@@ -0,0 +1,510 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.RefreshToken;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.model.User;
+import org.example.mobilyecommerce.repository.UserRepository;
+import org.example.mobilyecommerce.service.TokenCleanupServiceInterface.CleanupReport;
+import org.example.mobilyecommerce.service.TokenStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded {@link TokenStore} for single-node deployments ({@code token.store.type=local}): token churn
+ * never reaches the primary database.
+ * <p>
+ * Tokens are appended to memory-mapped segment files under {@code token.store.local.directory}; an in-memory
+ * index maps each digest to its record. Deleting refresh tokens appends a tombstone. Segments are never
+ * modified once full. Cleanup deletes every sealed segment whose records have all expired, and rewrites
+ * the live records of segments that fell below {@code compaction-threshold} before deleting them.
+ * On startup the index is rebuilt by replaying the segments; a torn record at the end of the last
+ * segment fails its CRC and is ignored.
+ * <p>
+ * Writes go to the page cache, not to disk: a process crash loses nothing, but a power loss can lose the
+ * newest tokens, which only forces those users to log in again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "token.store", name = "type", havingValue = "local")
+public class LocalTokenStore implements TokenStore {
+
+    private static final byte ACCESS = 1;
+    private static final byte REFRESH = 2;
+    private static final byte DELETE = 3;
+
+    /** Record header: payload length + CRC32 of the payload. */
+    private static final int HEADER_SIZE = 8;
+    /** kind, digest, user id, created at, expires at, revoked, ip length, agent length. */
+    private static final int FIXED_PAYLOAD_SIZE = 1 + 32 + 8 + 8 + 8 + 1 + 2 + 2;
+    private static final int MAX_IP_LENGTH = 45;
+    private static final int MAX_AGENT_LENGTH = 255;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final UserRepository userRepository;
+
+    private final Map<TokenDigest, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Long, Set<TokenDigest>> refreshTokensByUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    /** Guarded by {@code this}. */
+    private Segment active;
+
+    public LocalTokenStore(JwtToken jwtToken, UserRepository userRepository, MeterRegistry meterRegistry) {
+        JwtToken.Local config = jwtToken.getStore().getLocal();
+        this.directory = Path.of(config.getDirectory());
+        this.segmentSize = (int) config.getSegmentSize().toBytes();
+        this.compactionThreshold = config.getCompactionThreshold();
+        this.userRepository = userRepository;
+
+        if (segmentSize < 1024 * 1024) {
+            throw new IllegalStateException("token.store.local.segment-size must be at least 1MB");
+        }
+        recover();
+
+        meterRegistry.gauge("token.store.local.entries", index, Map::size);
+        meterRegistry.gauge("token.store.local.segments", segments, Map::size);
+    }
+
+    @Override
+    public void saveAccessToken(TokenDigest digest, Token token) {
+        afterCommit(() -> append(ACCESS, digest, token.getUser().getId(), token.getCreatedAt(), token.getExpiryDate(),
+                token.isRevoked(), token.getIpAddress(), token.getUserAgent()));
+    }
+
+    @Override
+    public Optional<Token> findAccessToken(TokenDigest digest, Instant now) {
+        return find(digest, ACCESS, now).map(record -> {
+            User user = new User();
+            user.setId(record.userId());
+            return Token.builder()
+                    .tokenHash(digest.bytes())
+                    .user(user)
+                    .createdAt(record.createdAt())
+                    .expiryDate(record.expiresAt())
+                    .revoked(record.revoked())
+                    .expired(false)
+                    .ipAddress(record.ip())
+                    .userAgent(record.agent())
+                    .build();
+        });
+    }
+
+    @Override
+    public RefreshToken saveRefreshToken(TokenDigest digest, RefreshToken token) {
+        afterCommit(() -> append(REFRESH, digest, token.getUser().getId(), token.getCreatedAt(), token.getExpiryDate(),
+                token.isExpired(), null, null));
+        return token;
+    }
+
+    @Override
+    public Optional<RefreshToken> findRefreshToken(TokenDigest digest, Instant now) {
+        return find(digest, REFRESH, now)
+                .filter(record -> !record.revoked())
+                .flatMap(record -> userRepository.findById(record.userId()).map(user -> RefreshToken.builder()
+                        .tokenHash(digest.bytes())
+                        .user(user)
+                        .createdAt(record.createdAt())
+                        .expiryDate(record.expiresAt())
+                        .expired(false)
+                        .build()));
+    }
+
+    /**
+     * Like the saves, the tombstones are only written once the transaction commits: a rolled-back logout
+     * keeps its tokens, and a token saved earlier in the same transaction is deleted with the rest.
+     *
+     * @return refresh tokens the user has right now
+     */
+    @Override
+    public int deleteRefreshTokens(Long userId) {
+        Set<TokenDigest> current = refreshTokensByUser.get(userId);
+        afterCommit(() -> tombstone(userId));
+        return current != null ? current.size() : 0;
+    }
+
+    private void tombstone(Long userId) {
+        Set<TokenDigest> digests = refreshTokensByUser.remove(userId);
+        if (digests == null) {
+            return;
+        }
+        for (TokenDigest digest : digests) {
+            Entry entry = index.get(digest);
+            if (entry != null) {
+                // الـ tombstone لازم يعيش لحد ما التوكن نفسه يخلص
+                append(DELETE, digest, userId, Instant.now(), Instant.ofEpochMilli(entry.expiresAt()), true, null, null);
+            }
+        }
+    }
+
+    @Override
+    public List<CleanupReport> purgeExpired(Instant now) {
+        long started = System.nanoTime();
+        long nowMillis = now.toEpochMilli();
+
+        long expired = 0;
+        for (Map.Entry<TokenDigest, Entry> e : index.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.expiresAt() <= nowMillis && index.remove(e.getKey(), entry)) {
+                entry.segment().live.decrementAndGet();
+                forgetRefreshToken(entry, e.getKey());
+                expired++;
+            }
+        }
+
+        long lockStart = System.nanoTime();
+        int segmentsRemoved;
+        synchronized (this) {
+            segmentsRemoved = compact(nowMillis);
+        }
+        long lockNanos = System.nanoTime() - lockStart;
+
+        return List.of(new CleanupReport("local-token-log", expired, segmentsRemoved,
+                Duration.ofNanos(System.nanoTime() - started), Duration.ofNanos(lockNanos)));
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (active != null) {
+            active.buffer.force();
+        }
+        segments.values().forEach(Segment::close);
+    }
+
+    // ---------------------------------------------------------------- log
+
+    private Optional<StoredRecord> find(TokenDigest digest, byte kind, Instant now) {
+        Entry entry = index.get(digest);
+        if (entry == null || entry.kind() != kind || entry.expiresAt() <= now.toEpochMilli()) {
+            return Optional.empty();
+        }
+        return Optional.of(read(entry.segment().buffer, entry.offset()));
+    }
+
+    private synchronized void append(byte kind, TokenDigest digest, Long userId, Instant createdAt, Instant expiresAt,
+                                     boolean revoked, String ip, String agent) {
+        byte[] payload = encode(kind, digest, userId, createdAt != null ? createdAt : Instant.now(), expiresAt,
+                revoked, ip, agent);
+        int offset = write(payload);
+        apply(kind, digest, userId, expiresAt.toEpochMilli(), active, offset);
+    }
+
+    /**
+     * Writes the record to the active segment, rolling to a new one when it is full.
+     *
+     * @return offset of the record in the active segment
+     */
+    private int write(byte[] payload) {
+        if (active == null || active.position + HEADER_SIZE + payload.length + HEADER_SIZE > active.buffer.capacity()) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        int offset = active.position;
+        // الـ payload الأول وبعدين الـ header - الـ record ما يبانش قبل ما يكتمل
+        active.buffer.put(offset + HEADER_SIZE, payload);
+        active.buffer.putInt(offset + 4, (int) crc.getValue());
+        active.buffer.putInt(offset, payload.length);
+        active.position = offset + HEADER_SIZE + payload.length;
+        active.records++;
+        active.maxExpiry = Math.max(active.maxExpiry, ByteBuffer.wrap(payload).getLong(1 + 32 + 8 + 8));
+        return offset;
+    }
+
+    /**
+     * Updates the index for a record written at {@code offset} (also used while replaying).
+     */
+    private void apply(byte kind, TokenDigest digest, Long userId, long expiresAt, Segment segment, int offset) {
+        if (kind == DELETE) {
+            Entry removed = index.remove(digest);
+            if (removed != null) {
+                removed.segment().live.decrementAndGet();
+                forgetRefreshToken(removed, digest);
+            }
+            return;
+        }
+        segment.live.incrementAndGet();
+        Entry previous = index.put(digest, new Entry(kind, userId, expiresAt, segment, offset));
+        if (previous != null) {
+            previous.segment().live.decrementAndGet();
+        }
+        if (kind == REFRESH) {
+            refreshTokensByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(digest);
+        }
+    }
+
+    private void forgetRefreshToken(Entry entry, TokenDigest digest) {
+        if (entry.kind() == REFRESH) {
+            refreshTokensByUser.computeIfPresent(entry.userId(), (id, digests) -> {
+                digests.remove(digest);
+                return digests.isEmpty() ? null : digests;
+            });
+        }
+    }
+
+    /**
+     * Drops fully expired sealed segments and rewrites sparse ones. Caller holds the lock.
+     *
+     * @return number of segment files removed
+     */
+    private int compact(long nowMillis) {
+        int removed = 0;
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment == active) {
+                continue;
+            }
+            if (segment.maxExpiry <= nowMillis) {
+                delete(segment);
+                removed++;
+            } else if (segment.records > 0 && (double) segment.live.get() / segment.records < compactionThreshold) {
+                rewrite(segment, nowMillis);
+                delete(segment);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Copies the records of {@code segment} that still matter to the active segment.
+     */
+    private void rewrite(Segment segment, long nowMillis) {
+        int moved = 0;
+        for (int offset = 0; offset < segment.position; ) {
+            int length = segment.buffer.getInt(offset);
+            StoredRecord record = read(segment.buffer, offset);
+            Entry entry = index.get(record.digest());
+            boolean live = entry != null && entry.segment() == segment && entry.offset() == offset;
+            boolean pendingTombstone = record.kind() == DELETE && record.expiresAt().toEpochMilli() > nowMillis;
+
+            if (live || pendingTombstone) {
+                byte[] payload = new byte[length];
+                segment.buffer.get(offset + HEADER_SIZE, payload);
+                int newOffset = write(payload);
+                // replace بدل put: لو التوكن اتمسح في نفس اللحظة ما نرجعوش
+                if (live && index.replace(record.digest(), entry,
+                        new Entry(entry.kind(), entry.userId(), entry.expiresAt(), active, newOffset))) {
+                    active.live.incrementAndGet();
+                    segment.live.decrementAndGet();
+                }
+                moved++;
+            }
+            offset += HEADER_SIZE + length;
+        }
+        log.debug("🗜️ Compacted token segment {}: {} of {} record(s) kept", segment.id, moved, segment.records);
+    }
+
+    private void roll() {
+        if (active != null) {
+            active.buffer.force();
+        }
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = Segment.open(directory.resolve(String.format("segment-%010d.log", id)), id, segmentSize);
+        segments.put(id, active);
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.id);
+        segment.close();
+        try {
+            // الـ mapping بيفضل صالح للـ readers اللي لسه ماسكين الـ buffer
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("⚠️ Could not delete token segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private synchronized void recover() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(p -> p.getFileName().toString().matches("segment-\\d{10}\\.log")).sorted().toList();
+            }
+            long nowMillis = System.currentTimeMillis();
+            for (Path file : files) {
+                long id = Long.parseLong(file.getFileName().toString().substring(8, 18));
+                Segment segment = Segment.open(file, id, segmentSize);
+                segments.put(id, segment);
+                replay(segment, nowMillis);
+                active = segment;
+            }
+            log.info("💾 Local token store: {} live token(s) in {} segment(s) at {}",
+                    index.size(), segments.size(), directory.toAbsolutePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open local token store at " + directory, e);
+        }
+    }
+
+    private void replay(Segment segment, long nowMillis) {
+        int offset = 0;
+        int capacity = segment.buffer.capacity();
+        while (offset + HEADER_SIZE <= capacity) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segment.buffer.get(offset + HEADER_SIZE, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) {
+                log.warn("⚠️ Ignoring torn record at {} in {}", offset, segment.path);
+                break;
+            }
+
+            StoredRecord record = read(segment.buffer, offset);
+            long expiresAt = record.expiresAt().toEpochMilli();
+            segment.records++;
+            segment.maxExpiry = Math.max(segment.maxExpiry, expiresAt);
+            if (record.kind() == DELETE || expiresAt > nowMillis) {
+                apply(record.kind(), record.digest(), record.userId(), expiresAt, segment, offset);
+            }
+            offset += HEADER_SIZE + length;
+        }
+        segment.position = offset;
+    }
+
+    // ---------------------------------------------------------------- records
+
+    private static byte[] encode(byte kind, TokenDigest digest, Long userId, Instant createdAt, Instant expiresAt,
+                                 boolean revoked, String ip, String agent) {
+        byte[] ipBytes = truncate(ip, MAX_IP_LENGTH);
+        byte[] agentBytes = truncate(agent, MAX_AGENT_LENGTH);
+        return ByteBuffer.allocate(FIXED_PAYLOAD_SIZE + ipBytes.length + agentBytes.length)
+                .put(kind)
+                .put(digest.bytes())
+                .putLong(userId)
+                .putLong(createdAt.toEpochMilli())
+                .putLong(expiresAt.toEpochMilli())
+                .put((byte) (revoked ? 1 : 0))
+                .putShort((short) ipBytes.length)
+                .put(ipBytes)
+                .putShort((short) agentBytes.length)
+                .put(agentBytes)
+                .array();
+    }
+
+    private static StoredRecord read(MappedByteBuffer buffer, int offset) {
+        int p = offset + HEADER_SIZE;
+        byte kind = buffer.get(p);
+        byte[] digest = new byte[32];
+        buffer.get(p + 1, digest);
+        p += 1 + 32;
+        long userId = buffer.getLong(p);
+        long createdAt = buffer.getLong(p + 8);
+        long expiresAt = buffer.getLong(p + 16);
+        boolean revoked = buffer.get(p + 24) != 0;
+        p += 25;
+        byte[] ip = new byte[buffer.getShort(p)];
+        buffer.get(p + 2, ip);
+        p += 2 + ip.length;
+        byte[] agent = new byte[buffer.getShort(p)];
+        buffer.get(p + 2, agent);
+
+        return new StoredRecord(kind, TokenDigest.fromBytes(digest), userId, Instant.ofEpochMilli(createdAt),
+                Instant.ofEpochMilli(expiresAt), revoked,
+                ip.length == 0 ? null : new String(ip, StandardCharsets.UTF_8),
+                agent.length == 0 ? null : new String(agent, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] truncate(String value, int maxChars) {
+        if (value == null) {
+            return new byte[0];
+        }
+        return (value.length() > maxChars ? value.substring(0, maxChars) : value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Index entry: where the newest record for a digest lives.
+     */
+    private record Entry(byte kind, Long userId, long expiresAt, Segment segment, int offset) {
+    }
+
+    private record StoredRecord(byte kind, TokenDigest digest, Long userId, Instant createdAt, Instant expiresAt,
+                                boolean revoked, String ip, String agent) {
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger live = new AtomicInteger();
+        /** Guarded by the store lock. */
+        private int position;
+        private int records;
+        private long maxExpiry;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Maps the file; an existing segment keeps its size even if {@code segment-size} changed since.
+         */
+        static Segment open(Path path, long id, int size) {
+            try {
+                FileChannel channel = FileChannel.open(path,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long mapped = Math.max(channel.size(), size);
+                return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mapped));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map token segment " + path, e);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to close token segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.mobilyecommerce.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.controller.vm.AuthResponseVm;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent refresh calls that present the same refresh token share one issuance.
+ * <p>
+ * The first caller issues; callers arriving while it runs wait for its result instead of issuing again.
+ * Nothing is kept once the issuance completes, so a call after that goes through every refresh token check
+ * again and a replayed token never gets someone else's result. A failure reaches every waiting caller.
+ */
+@Slf4j
+@Component
+public class RefreshCoalescer {
+
+    private final Map<TokenDigest, CompletableFuture<AuthResponseVm>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param issue runs the refresh (in its own, committed transaction) and returns its result
+     */
+    public AuthResponseVm coalesce(String refreshToken, Supplier<AuthResponseVm> issue) {
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        CompletableFuture<AuthResponseVm> issuance = new CompletableFuture<>();
+        CompletableFuture<AuthResponseVm> running = inFlight.putIfAbsent(digest, issuance);
+        if (running != null) {
+            log.debug("🔄 Refresh coalesced with a concurrent call");
+            return await(running);
+        }
+
+        try {
+            AuthResponseVm response = issue.get();
+            issuance.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            issuance.completeExceptionally(e);
+            throw e;
+        } finally {
+            // الـ transaction عملت commit خلاص - من هنا ورايح كل طلب بيتشيك من الأول
+            inFlight.remove(digest, issuance);
+        }
+    }
+
+    private static AuthResponseVm await(CompletableFuture<AuthResponseVm> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // نفس الـ exception اللي طلعت للطلب الأول (مثلاً TokenExpiredException)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.SignedRefreshTokens;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Revocations of signed refresh tokens, which are never stored and so cannot simply be deleted.
+ * <p>
+ * Two kinds of entry are kept: a revoked family, and a per-user cutoff that rejects every token the user
+ * was issued up to that moment (logout). Next to them is the newest generation of each family that was
+ * refreshed at least once, so a token that was already rotated away is recognised when it comes back.
+ * None of them needs to outlive the longest refresh token it could match, so the maps stay as small as
+ * the number of revocations and refreshed logins within one {@code refresh-time}.
+ * The list is written to {@code token.signed-refresh.deny-list-file} every {@code persist-interval} when it
+ * changed, and on shutdown; revocations made since the last write are lost if the process dies.
+ * Each node keeps its own list.
+ */
+@Slf4j
+@Component
+public class RefreshTokenDenyList {
+
+    private static final int MAGIC = 0x52444c31; // "RDL1"
+
+    private final Path file;
+    private final Duration persistInterval;
+    private final Duration refreshTime;
+    /** Family id → when its tokens have all expired, epoch millis. */
+    private final Map<UUID, Long> families = new ConcurrentHashMap<>();
+    /** User id → tokens issued at or before this instant are revoked, epoch millis. */
+    private final Map<Long, Long> userCutoffs = new ConcurrentHashMap<>();
+    /** Family id → its newest token; families never refreshed are absent, i.e. at generation 0. */
+    private final Map<UUID, Generation> generations = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private ScheduledExecutorService persister;
+
+    public RefreshTokenDenyList(JwtToken jwtToken, MeterRegistry meterRegistry) {
+        JwtToken.SignedRefresh config = jwtToken.getSignedRefresh();
+        this.file = Path.of(config.getDenyListFile());
+        this.persistInterval = config.getPersistInterval();
+        this.refreshTime = jwtToken.getRefreshTime();
+
+        meterRegistry.gauge("token.refresh.deny_list.families", families, Map::size);
+        meterRegistry.gauge("token.refresh.deny_list.users", userCutoffs, Map::size);
+        meterRegistry.gauge("token.refresh.deny_list.generations", generations, Map::size);
+    }
+
+    @PostConstruct
+    void start() {
+        load();
+        persister = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "refresh-deny-list");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = persistInterval.toMillis();
+        persister.scheduleWithFixedDelay(this::persistIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        persister.shutdown();
+        persister.awaitTermination(10, TimeUnit.SECONDS);
+        persistIfChanged();
+    }
+
+    public boolean isRevoked(SignedRefreshTokens.Payload token) {
+        if (families.containsKey(token.familyId())) {
+            return true;
+        }
+        Long cutoff = userCutoffs.get(token.userId());
+        return cutoff != null && token.issuedAt().toEpochMilli() <= cutoff;
+    }
+
+    /**
+     * Whether a newer token of the same family was already handed out, i.e. {@code token} was rotated away.
+     */
+    public boolean isSuperseded(SignedRefreshTokens.Payload token) {
+        Generation newest = generations.get(token.familyId());
+        return newest != null && token.generation() < newest.generation();
+    }
+
+    /**
+     * Records that the family's token of {@code generation} was handed out; older ones are superseded from now on.
+     */
+    public void advance(UUID familyId, long generation, Instant expiresAt) {
+        generations.merge(familyId, new Generation(generation, expiresAt.toEpochMilli()),
+                (current, next) -> next.generation() > current.generation() ? next : current);
+        dirty.set(true);
+    }
+
+    /**
+     * Revokes every token of one login, e.g. when a token it already rotated away is presented again.
+     */
+    public void revokeFamily(UUID familyId, Instant expiresAt) {
+        families.put(familyId, expiresAt.toEpochMilli());
+        dirty.set(true);
+    }
+
+    /**
+     * Revokes every refresh token issued to the user until {@code now}; later logins are unaffected.
+     */
+    public void revokeUser(Long userId, Instant now) {
+        userCutoffs.merge(userId, now.toEpochMilli(), Math::max);
+        dirty.set(true);
+    }
+
+    private void persistIfChanged() {
+        long now = System.currentTimeMillis();
+        // الـ entries اللي كل التوكنات بتاعتها خلصت مالهاش لازمة
+        families.values().removeIf(expiresAt -> expiresAt <= now);
+        userCutoffs.values().removeIf(cutoff -> cutoff + refreshTime.toMillis() <= now);
+        generations.values().removeIf(generation -> generation.expiresAt() <= now);
+
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            dirty.set(true);
+            log.error("❌ Failed to persist refresh token deny-list to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void write() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            Map<UUID, Long> familySnapshot = Map.copyOf(families);
+            Map<Long, Long> userSnapshot = Map.copyOf(userCutoffs);
+            Map<UUID, Generation> generationSnapshot = Map.copyOf(generations);
+            out.writeInt(MAGIC);
+            out.writeInt(familySnapshot.size());
+            for (Map.Entry<UUID, Long> e : familySnapshot.entrySet()) {
+                out.writeLong(e.getKey().getMostSignificantBits());
+                out.writeLong(e.getKey().getLeastSignificantBits());
+                out.writeLong(e.getValue());
+            }
+            out.writeInt(userSnapshot.size());
+            for (Map.Entry<Long, Long> e : userSnapshot.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeLong(e.getValue());
+            }
+            out.writeInt(generationSnapshot.size());
+            for (Map.Entry<UUID, Generation> e : generationSnapshot.entrySet()) {
+                out.writeLong(e.getKey().getMostSignificantBits());
+                out.writeLong(e.getKey().getLeastSignificantBits());
+                out.writeLong(e.getValue().generation());
+                out.writeLong(e.getValue().expiresAt());
+            }
+        }
+        // الملف القديم بيتبدل مرة واحدة - يا القديم يا الجديد كامل
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("💾 Refresh token deny-list persisted: {} family(ies), {} user(s), {} generation(s)",
+                families.size(), userCutoffs.size(), generations.size());
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException("Not a refresh token deny-list: " + file);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                UUID familyId = new UUID(in.readLong(), in.readLong());
+                long expiresAt = in.readLong();
+                if (expiresAt > now) {
+                    families.put(familyId, expiresAt);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                long userId = in.readLong();
+                long cutoff = in.readLong();
+                if (cutoff + refreshTime.toMillis() > now) {
+                    userCutoffs.put(userId, cutoff);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                UUID familyId = new UUID(in.readLong(), in.readLong());
+                Generation generation = new Generation(in.readLong(), in.readLong());
+                if (generation.expiresAt() > now) {
+                    generations.put(familyId, generation);
+                }
+            }
+            log.info("🚫 Refresh token deny-list loaded: {} family(ies), {} user(s), {} generation(s)",
+                    families.size(), userCutoffs.size(), generations.size());
+        } catch (IOException e) {
+            // من غير الـ list التوكنات الملغية ترجع تشتغل - الأفضل ما نبدأش
+            throw new IllegalStateException("Failed to read refresh token deny-list " + file, e);
+        }
+    }
+
+    /**
+     * @param expiresAt when the family's tokens have all expired, epoch millis
+     */
+    private record Generation(long generation, long expiresAt) {
+    }
+}
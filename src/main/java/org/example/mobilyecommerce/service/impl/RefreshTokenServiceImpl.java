@@ -2,52 +2,82 @@ package org.example.mobilyecommerce.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.SignedRefreshTokens;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
 import org.example.mobilyecommerce.config.iwt.TokenHandler;
 import org.example.mobilyecommerce.exception.TokenNotFoundException;
 import org.example.mobilyecommerce.model.RefreshToken;
 import org.example.mobilyecommerce.model.User;
-import org.example.mobilyecommerce.repository.RefreshTokenRepository;
+import org.example.mobilyecommerce.repository.UserRepository;
 import org.example.mobilyecommerce.service.RefreshTokenServiceInterface;
+import org.example.mobilyecommerce.service.TokenStore;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RefreshTokenServiceImpl implements RefreshTokenServiceInterface {
 
-    private final RefreshTokenRepository refreshTokenRepository;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String READABLE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private final TokenStore tokenStore;
     private final TokenHandler tokenHandler;
+    private final SignedRefreshTokens signedRefreshTokens;
+    private final RefreshTokenDenyList refreshTokenDenyList;
+    private final UserRepository userRepository;
 
     @Override
     @Transactional
     public RefreshToken createRefreshToken(User user) {
-        log.debug("🔑 Creating refresh token for user: {}", user.getUsername());
+        log.debug("🔑 Creating refresh token for user id: {}", user.getId());
 
-        String tokenValue = generateReadableToken();
         Instant now = Instant.now();
+        Instant expiry = now.plus(tokenHandler.getRefreshTime());
+
+        if (signedRefreshTokens.isEnabled()) {
+            // مفيش حاجة تتخزن - التوكن نفسه فيه كل اللي محتاجينه
+            String tokenValue = signedRefreshTokens.issue(user.getId(), UUID.randomUUID(), 0, now, expiry);
+            log.debug("✅ Signed refresh token issued for user id: {} (expires: {})", user.getId(), expiry);
+            return RefreshToken.builder()
+                    .user(user)
+                    .rawToken(tokenValue)
+                    .createdAt(now)
+                    .expiryDate(expiry)
+                    .expired(false)
+                    .build();
+        }
+
+        String tokenValue = generateReadableToken();
+        TokenDigest digest = TokenDigest.of(tokenValue);
 
         RefreshToken refreshToken = RefreshToken.builder()
                 .user(user)
-                .token(tokenValue)
+                .token(tokenHandler.isKeepRawTokenValue() ? tokenValue : null)
+                .tokenHash(digest.bytes())
                 .createdAt(now)
-                .expiryDate(now.plus(tokenHandler.getRefreshTime()))
+                .expiryDate(expiry)
                 .expired(false)
                 .build();
 
-        RefreshToken saved = refreshTokenRepository.save(refreshToken);
-        log.debug("✅ Refresh token created for user: {} (expires: {})", user.getUsername(), saved.getExpiryDate());
+        RefreshToken saved = tokenStore.saveRefreshToken(digest, refreshToken);
+        saved.setRawToken(tokenValue);
+        log.debug("✅ Refresh token created for user id: {} (expires: {})", user.getId(), saved.getExpiryDate());
 
         return saved;
     }
 
     @Override
     public RefreshToken getByToken(String token) {
-        return refreshTokenRepository.findByToken(token)
+        return findValid(token)
                 .orElseThrow(() -> new TokenNotFoundException("Refresh token not found"));
     }
 
@@ -61,42 +91,16 @@ public class RefreshTokenServiceImpl implements RefreshTokenServiceInterface {
                 user.getUsername(), user.getId());
 
         try {
-            // 1. التحقق من وجود tokens قبل الحذف
-            List<RefreshToken> existingTokens = refreshTokenRepository.findByUserId(user.getId());
-            log.info("📊 Found {} refresh token(s) for user {}", existingTokens.size(), user.getUsername());
-
-            if (existingTokens.isEmpty()) {
-                log.warn("⚠️ No refresh tokens found for user: {}", user.getUsername());
-                return;
-            }
+            // التوكنات الموقعة مش متخزنة - بنرفض كل اللي اتصدر لحد دلوقتي
+            refreshTokenDenyList.revokeUser(user.getId(), Instant.now());
 
-            // 2. طباعة IDs الـ tokens قبل الحذف
-            existingTokens.forEach(token ->
-                    log.debug("🔍 Token to delete - ID: {}, Token: {}", token.getId(),
-                            token.getToken().substring(0, Math.min(10, token.getToken().length())))
-            );
+            // حذف مباشر بـ statement واحد (أو tombstone في الـ local store)
+            int deleted = tokenStore.deleteRefreshTokens(user.getId());
 
-            // 3. محاولة الحذف
-            log.info("🔄 Attempting to delete tokens...");
-            refreshTokenRepository.deleteByUserId(user.getId());
-
-            // 4. Flush للتأكد من تنفيذ الحذف فوراً
-            refreshTokenRepository.flush();
-            log.info("💾 Flush executed");
-
-            // 5. التحقق بعد الحذف
-            List<RefreshToken> remainingTokens = refreshTokenRepository.findByUserId(user.getId());
-            log.info("📊 After delete: {} refresh token(s) remaining for user {}",
-                    remainingTokens.size(), user.getUsername());
-
-            if (remainingTokens.isEmpty()) {
-                log.info("✅ Successfully deleted all refresh tokens for user: {}", user.getUsername());
+            if (deleted == 0) {
+                log.warn("⚠️ No refresh tokens found for user: {}", user.getUsername());
             } else {
-                log.error("❌ Failed to delete all tokens! {} token(s) still exist", remainingTokens.size());
-                remainingTokens.forEach(token ->
-                        log.error("❌ Remaining token - ID: {}, Token: {}",
-                                token.getId(), token.getToken())
-                );
+                log.info("✅ Deleted {} refresh token(s) for user: {}", deleted, user.getUsername());
             }
 
         } catch (Exception e) {
@@ -107,59 +111,83 @@ public class RefreshTokenServiceImpl implements RefreshTokenServiceInterface {
     }
 
     @Override
-    public boolean isValid(String token) {
-        return refreshTokenRepository.findByToken(token)
-                .map(rt -> {
-                    boolean notExpiredFlag = !rt.isExpired();
-                    boolean notExpiredTime = rt.getExpiryDate().isAfter(Instant.now());
-                    log.debug("🔍 Token validation - Flag: {}, Time: {}", notExpiredFlag, notExpiredTime);
-                    return notExpiredFlag && notExpiredTime;
-                })
-                .orElse(false);
+    public Optional<RefreshToken> findValid(String token) {
+        Optional<RefreshToken> refreshToken = signedRefreshTokens.isSigned(token)
+                ? findSigned(token)
+                : tokenStore.findRefreshToken(TokenDigest.of(token), Instant.now());
+        log.debug("🔍 Refresh token validation - Found: {}", refreshToken.isPresent());
+        return refreshToken;
     }
 
+    /**
+     * Signed tokens are single-use: the caller gets the next generation of the same family, expiring when the
+     * original would have, and once the refresh commits the presented token counts as superseded. Stored tokens
+     * come back unchanged.
+     */
     @Override
-    @Transactional
-    public int markExpiredTokens() {
-        Instant now = Instant.now();
-        log.info("🔍 Marking expired refresh tokens (current time: {})", now);
-
-        int count = refreshTokenRepository.markExpiredRefreshTokens(now);
-
-        if (count > 0) {
-            log.info("⚠️ Marked {} refresh tokens as expired", count);
+    public String rotate(String token, User user) {
+        if (!signedRefreshTokens.isSigned(token)) {
+            return token;
+        }
+        SignedRefreshTokens.Payload payload = signedRefreshTokens.verify(token, Instant.now())
+                .orElseThrow(() -> new TokenNotFoundException("Refresh token not found"));
+        long next = payload.generation() + 1;
+        String successor = signedRefreshTokens.issue(user.getId(), payload.familyId(), next,
+                Instant.now(), payload.expiresAt());
+
+        Runnable advance = () -> refreshTokenDenyList.advance(payload.familyId(), next, payload.expiresAt());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // لو الـ refresh عمل rollback التوكن القديم لسه هو اللي مع العميل
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance.run();
+                }
+            });
         } else {
-            log.debug("ℹ️ No refresh tokens to mark as expired");
+            advance.run();
         }
-
-        return count;
+        return successor;
     }
 
-    @Override
-    @Transactional
-    public int deleteExpiredTokens() {
-        log.info("🧹 Deleting expired refresh tokens");
-
-        int count = refreshTokenRepository.deleteExpiredRefreshTokens();
+    /**
+     * Signed token: the MAC and the deny-list decide; the database is only read for the user row, which the
+     * new access token needs anyway.
+     */
+    private Optional<RefreshToken> findSigned(String token) {
+        return signedRefreshTokens.verify(token, Instant.now())
+                .filter(payload -> !refreshTokenDenyList.isRevoked(payload))
+                .filter(payload -> !isReused(payload))
+                .flatMap(payload -> userRepository.findById(payload.userId())
+                        .map(user -> RefreshToken.builder()
+                                .user(user)
+                                .createdAt(payload.issuedAt())
+                                .expiryDate(payload.expiresAt())
+                                .expired(false)
+                                .build()));
+    }
 
-        if (count > 0) {
-            log.info("✅ Deleted {} expired refresh tokens", count);
-        } else {
-            log.debug("ℹ️ No expired refresh tokens to delete");
+    /**
+     * A token whose family already moved to a newer generation was used before. Presented again it is treated
+     * as stolen and the whole family is revoked, including the successor the legitimate client holds. Other
+     * logins of the same user have families of their own and are not affected.
+     */
+    private boolean isReused(SignedRefreshTokens.Payload payload) {
+        if (!refreshTokenDenyList.isSuperseded(payload)) {
+            return false;
         }
-
-        return count;
+        refreshTokenDenyList.revokeFamily(payload.familyId(), payload.expiresAt());
+        log.warn("🚫 Reused refresh token for user id: {}, family {} revoked", payload.userId(), payload.familyId());
+        return true;
     }
 
     private String generateReadableToken() {
-        SecureRandom random = new SecureRandom();
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
         StringBuilder token = new StringBuilder();
 
         for (int i = 0; i < 4; i++) {
             if (i > 0) token.append("-");
             for (int j = 0; j < 4; j++) {
-                token.append(chars.charAt(random.nextInt(chars.length())));
+                token.append(READABLE_CHARS.charAt(RANDOM.nextInt(READABLE_CHARS.length())));
             }
         }
 
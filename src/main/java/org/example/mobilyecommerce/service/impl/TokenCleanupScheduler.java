@@ -2,7 +2,6 @@ package org.example.mobilyecommerce.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.mobilyecommerce.service.RefreshTokenServiceInterface;
 import org.example.mobilyecommerce.service.TokenCleanupServiceInterface;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -15,54 +14,17 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class TokenCleanupScheduler {
 
-    private final TokenCleanupServiceInterface accessTokenCleanupService;
-    private final RefreshTokenServiceInterface refreshTokenService;
+    private final TokenCleanupServiceInterface tokenCleanupService;
 
     /**
-     * Mark expired access tokens (every 1 minute)
+     * Delete expired access and refresh tokens in a single pass (every 30 minutes)
      */
-    @Scheduled(cron = "0 */30 * * * *")
-    public void markExpiredAccessTokens() {
+    @Scheduled(cron = "${token.cleanup.cron:0 */30 * * * *}")
+    public void purgeExpiredTokens() {
         try {
-            accessTokenCleanupService.markExpiredTokens();
+            tokenCleanupService.purgeExpiredTokens();
         } catch (Exception e) {
-            log.error("❌ Error marking expired access tokens: {}", e.getMessage(), e);
+            log.error("❌ Error purging expired tokens: {}", e.getMessage(), e);
         }
     }
-
-    /**
-     * Delete expired/revoked access tokens (every 2 minutes)
-     */
-    @Scheduled(cron = "0 */30 * * * *")
-    public void deleteExpiredAccessTokens() {
-        try {
-            accessTokenCleanupService.deleteExpiredTokens();
-        } catch (Exception e) {
-            log.error("❌ Error deleting expired access tokens: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Mark expired refresh tokens (every 30 minutes)
-     */
-    @Scheduled(cron = "0 */30 * * * *")
-    public void markExpiredRefreshTokens() {
-        try {
-            refreshTokenService.markExpiredTokens();
-        } catch (Exception e) {
-            log.error("❌ Error marking expired refresh tokens: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Delete expired refresh tokens (every 30 minutes)
-     */
-    @Scheduled(cron = "0 */30 * * * *")
-    public void deleteExpiredRefreshTokens() {
-        try {
-            refreshTokenService.deleteExpiredTokens();
-        } catch (Exception e) {
-            log.error("❌ Error deleting expired refresh tokens: {}", e.getMessage(), e);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,59 +1,51 @@
 package org.example.mobilyecommerce.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.mobilyecommerce.repository.TokenRepository;
+import org.example.mobilyecommerce.config.iwt.VerifiedTokenCache;
 import org.example.mobilyecommerce.service.TokenCleanupServiceInterface;
+import org.example.mobilyecommerce.service.TokenStore;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 
+/**
+ * Removes expired tokens from the configured {@link TokenStore} and records how long it took.
+ * How the store deletes them (batched DELETEs, dropped partitions, compacted segments) is up to the store.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TokenCleanupServiceImpl implements TokenCleanupServiceInterface {
 
-    private final TokenRepository tokenRepository;
+    private final TokenStore tokenStore;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final MeterRegistry meterRegistry;
 
     @Override
-    @Transactional
-    public void markExpiredTokens() {
+    public List<CleanupReport> purgeExpiredTokens() {
         Instant now = Instant.now();
-        log.info("🔍 Marking expired access tokens (current time: {})", now);
+        log.info("🧹 Purging tokens expired before {}", now);
 
-        int updatedCount = tokenRepository.markExpiredTokens(now);
+        List<CleanupReport> reports = tokenStore.purgeExpired(now);
+        verifiedTokenCache.evictExpired();
 
-        if (updatedCount > 0) {
-            log.info("⚠️ Marked {} access tokens as expired", updatedCount);
-        } else {
-            log.debug("ℹ️ No access tokens to mark as expired");
-        }
+        reports.forEach(this::record);
+        return reports;
     }
 
-    @Override
-    @Transactional
-    public void deleteExpiredTokens() {
-        log.info("🧹 Deleting expired/revoked access tokens");
+    private void record(CleanupReport report) {
+        meterRegistry.counter("token.cleanup.rows", "table", report.table()).increment(report.rows());
+        meterRegistry.timer("token.cleanup.lock", "table", report.table()).record(report.lockTime());
 
-        int deletedCount = tokenRepository.deleteExpiredAndRevokedTokens();
-
-        if (deletedCount > 0) {
-            log.info("✅ Deleted {} expired/revoked access tokens", deletedCount);
+        if (report.rows() > 0) {
+            log.info("✅ {}: deleted {} row(s) in {} batch(es) — {} rows/s, lock time {} ms, total {} ms",
+                    report.table(), report.rows(), report.batches(), report.rowsPerSecond(),
+                    report.lockTime().toMillis(), report.elapsed().toMillis());
         } else {
-            log.debug("ℹ️ No expired/revoked access tokens to delete");
+            log.debug("ℹ️ {}: no expired tokens to delete", report.table());
         }
     }
-
-    @Override
-    @Transactional
-    public void cleanupNow() {
-        log.info("🧹 Performing immediate access token cleanup");
-
-        Instant now = Instant.now();
-        int marked = tokenRepository.markExpiredTokens(now);
-        int deleted = tokenRepository.deleteExpiredAndRevokedTokens();
-
-        log.info("✅ Immediate cleanup: marked {} and deleted {} access tokens", marked, deleted);
-    }
-}
\ No newline at end of file
+}
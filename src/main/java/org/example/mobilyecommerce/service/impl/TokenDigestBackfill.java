@@ -0,0 +1,61 @@
+package org.example.mobilyecommerce.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.RefreshToken;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.repository.RefreshTokenRepository;
+import org.example.mobilyecommerce.repository.TokenRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills {@code token_hash} for rows created before tokens were looked up by digest.
+ * <p>
+ * Runs once all singletons are created, which is before the web server accepts requests,
+ * so no lookup ever misses a row that only has its raw value stored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenDigestBackfill implements SmartInitializingSingleton {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final TokenRepository tokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int accessCount = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<Token> tokens = tokenRepository.findWithoutHash(PageRequest.of(0, BATCH_SIZE));
+                tokens.forEach(t -> t.setTokenHash(TokenDigest.of(t.getToken()).bytes()));
+                return tokens.size();
+            });
+            accessCount += batch;
+        } while (batch == BATCH_SIZE);
+
+        int refreshCount = 0;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<RefreshToken> tokens = refreshTokenRepository.findWithoutHash(PageRequest.of(0, BATCH_SIZE));
+                tokens.forEach(t -> t.setTokenHash(TokenDigest.of(t.getToken()).bytes()));
+                return tokens.size();
+            });
+            refreshCount += batch;
+        } while (batch == BATCH_SIZE);
+
+        if (accessCount > 0 || refreshCount > 0) {
+            log.info("🔑 Backfilled token digests: {} access token(s), {} refresh token(s)", accessCount, refreshCount);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.mobilyecommerce.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.exception.UserNotFoundException;
+import org.example.mobilyecommerce.repository.UserRepository;
+import org.example.mobilyecommerce.service.TokenEpochServiceInterface;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Slf4j
+@Service
+public class TokenEpochServiceImpl implements TokenEpochServiceInterface {
+
+    private final UserRepository userRepository;
+    private final LoadingCache<Long, Long> epochs;
+
+    public TokenEpochServiceImpl(UserRepository userRepository, JwtToken jwtToken, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+
+        JwtToken.EpochCache config = jwtToken.getEpochCache();
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build(id -> userRepository.findTokenEpochById(id)
+                        .orElseThrow(() -> new UserNotFoundException("User with id " + id + " not found")));
+
+        CaffeineCacheMetrics.monitor(meterRegistry, epochs, "tokenEpochs");
+    }
+
+    @Override
+    public long currentEpoch(Long userId) {
+        return epochs.get(userId);
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(Long userId) {
+        userRepository.incrementTokenEpoch(userId);
+        epochs.invalidate(userId);
+
+        // أي قراءة قبل الـ commit بتشوف الـ epoch القديم وبترجعه للـ cache،
+        // فبنمسح تاني بعد ما الـ transaction تخلص (commit أو rollback)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    epochs.invalidate(userId);
+                }
+            });
+        }
+        log.debug("🔒 Token epoch bumped for user id: {}", userId);
+    }
+}
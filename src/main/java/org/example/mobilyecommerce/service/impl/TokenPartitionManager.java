@@ -0,0 +1,184 @@
+package org.example.mobilyecommerce.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Maintains RANGE COLUMNS partitions on {@code expiry_date} for the token tables
+ * ({@code token.partitioning.enabled}, MySQL only — see {@code db/token-partitioning.sql}).
+ * <p>
+ * Tokens expire in strict time order, so every partition whose upper bound is in the past only holds
+ * expired rows and can be dropped as a whole. Future partitions are split off {@code pmax} far enough
+ * ahead to cover the longest token lifetime.
+ * <p>
+ * Every node runs the same schedule, so the work is done under the MySQL named lock
+ * {@value #LOCK_NAME} on a single connection; a node that can't take it right away skips the run.
+ */
+@Slf4j
+@Component
+public class TokenPartitionManager {
+
+    static final List<String> TABLES = List.of("token", "refresh_token");
+    static final String LOCK_NAME = "token_partition_maintenance";
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtToken.Partitioning config;
+    private final Duration horizon;
+
+    public TokenPartitionManager(JdbcTemplate jdbcTemplate, JwtToken jwtToken) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = jwtToken.getPartitioning();
+        Duration longest = jwtToken.getAccessTime().compareTo(jwtToken.getRefreshTime()) > 0
+                ? jwtToken.getAccessTime() : jwtToken.getRefreshTime();
+        this.horizon = longest.plus(config.getGranularity().getDuration());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (config.isEnabled()) {
+            withLock(jdbc -> {
+                TABLES.forEach(table -> createUpcomingPartitions(jdbc, table));
+                return 0;
+            });
+        }
+    }
+
+    /**
+     * Creates partitions up to the horizon and drops the ones that only hold expired tokens.
+     *
+     * @return number of partitions dropped for the table
+     */
+    public int maintain(String table, Instant now) {
+        return withLock(jdbc -> {
+            if (!isPartitioned(jdbc, table)) {
+                log.warn("⚠️ Token partitioning is enabled but table {} is not partitioned — run db/token-partitioning.sql", table);
+                return 0;
+            }
+            createUpcomingPartitions(jdbc, table);
+            return dropExpiredPartitions(jdbc, table, now);
+        });
+    }
+
+    /**
+     * Runs {@code work} on one connection holding {@link #LOCK_NAME}, so two nodes never reorganize
+     * the same table at once. GET_LOCK belongs to the connection, hence the single-connection template.
+     */
+    private int withLock(Function<JdbcTemplate, Integer> work) {
+        Integer result = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Integer locked = jdbc.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+            if (locked == null || locked != 1) {
+                log.debug("🗂️ Partition maintenance is running on another node — skipping");
+                return 0;
+            }
+            try {
+                return work.apply(jdbc);
+            } finally {
+                jdbc.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+            }
+        });
+        return result != null ? result : 0;
+    }
+
+    private void createUpcomingPartitions(JdbcTemplate jdbc, String table) {
+        if (!isPartitioned(jdbc, table)) {
+            return;
+        }
+        LocalDateTime current = truncate(LocalDateTime.now(ZoneOffset.UTC));
+        LocalDateTime last = partitions(jdbc, table).stream()
+                .map(Partition::upperBound)
+                .filter(b -> b != null)
+                .max(LocalDateTime::compareTo)
+                .filter(b -> b.isAfter(current))
+                .orElse(current);
+
+        LocalDateTime until = LocalDateTime.now(ZoneOffset.UTC).plus(horizon);
+        List<LocalDateTime> bounds = new ArrayList<>();
+        for (LocalDateTime b = last.plus(config.getGranularity().getDuration()); !b.isAfter(until);
+             b = b.plus(config.getGranularity().getDuration())) {
+            bounds.add(b);
+        }
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        StringJoiner parts = new StringJoiner(", ");
+        bounds.forEach(b -> parts.add("PARTITION p" + NAME_FORMAT.format(b)
+                + " VALUES LESS THAN ('" + BOUND_FORMAT.format(b) + "')"));
+        parts.add("PARTITION pmax VALUES LESS THAN (MAXVALUE)");
+
+        jdbc.execute("ALTER TABLE " + table + " REORGANIZE PARTITION pmax INTO (" + parts + ")");
+        log.info("🗂️ {}: created {} partition(s) up to {}", table, bounds.size(), bounds.get(bounds.size() - 1));
+    }
+
+    private int dropExpiredPartitions(JdbcTemplate jdbc, String table, Instant now) {
+        LocalDateTime cutoff = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        List<String> expired = partitions(jdbc, table).stream()
+                .filter(p -> p.upperBound() != null && !p.upperBound().isAfter(cutoff))
+                .map(Partition::name)
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        jdbc.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", expired));
+        log.info("🗑️ {}: dropped {} expired partition(s)", table, expired.size());
+        return expired.size();
+    }
+
+    private boolean isPartitioned(JdbcTemplate jdbc, String table) {
+        Integer count = jdbc.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.partitions
+                WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL
+                """, Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private List<Partition> partitions(JdbcTemplate jdbc, String table) {
+        return jdbc.query("""
+                SELECT partition_name, partition_description FROM information_schema.partitions
+                WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL
+                """, (rs, i) -> new Partition(rs.getString(1), parseBound(rs.getString(2))), table);
+    }
+
+    private static LocalDateTime parseBound(String description) {
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description)) {
+            return null;
+        }
+        return LocalDateTime.parse(description.replace("'", "").trim(), BOUND_FORMAT);
+    }
+
+    private LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(config.getGranularity() == JwtToken.Granularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    /**
+     * @param name       partition name
+     * @param upperBound exclusive upper bound, null for {@code pmax}
+     */
+    private record Partition(String name, LocalDateTime upperBound) {
+    }
+}
@@ -0,0 +1,444 @@
+package org.example.mobilyecommerce.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.example.mobilyecommerce.config.BoundedPasswordEncoder;
+import org.example.mobilyecommerce.config.UserImport;
+import org.example.mobilyecommerce.dto.RoleDto;
+import org.example.mobilyecommerce.dto.UserDto;
+import org.example.mobilyecommerce.exception.InvalidImportFileException;
+import org.example.mobilyecommerce.model.UserRole;
+import org.example.mobilyecommerce.service.UserImportServiceInterface;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk user import for migrations.
+ * <p>
+ * {@link #submit} spools the upload to a temporary file and queues it as a job; jobs run one at a time on the
+ * {@code user-import-runner} thread, never on a request thread. The file is read line by line and handled in
+ * chunks of {@code user-import.chunk-size}: existing users are looked up with one query per chunk, passwords
+ * are hashed on a small pool of minimum-priority threads ({@code user-import.threads}, a quarter of the cores
+ * by default), and users and roles are written with JDBC batch inserts in one transaction per chunk. Memory
+ * stays bounded by the chunk size and the failure list cap, whatever the file size.
+ * <p>
+ * The pool size is what keeps logins and the catalog responsive during an import: most schedulers ignore
+ * Java thread priorities, so the lower priority is only a hint.
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportServiceInterface {
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO user_eco (username, password, email, phone, token_epoch) VALUES (?, ?, ?, ?, 0)";
+    private static final String INSERT_ROLE_SQL = "INSERT INTO role (role, user_id) VALUES (?, ?)";
+
+    private static final List<String> CSV_COLUMNS = List.of("username", "email", "password", "phone", "roles");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder hasher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UserImport config;
+    private final ExecutorService hashingPool;
+    private final ExecutorService runner;
+    private final Cache<UUID, ImportJob> jobs;
+
+    public UserImportServiceImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 PlatformTransactionManager transactionManager, PasswordEncoder passwordEncoder,
+                                 ObjectMapper objectMapper, Validator validator, UserImport config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // الـ import عنده pool خاص بيه - ما ياخدش أماكن الـ login في الـ bounded queue
+        this.hasher = passwordEncoder instanceof BoundedPasswordEncoder bounded ? bounded.getDelegate() : passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.config = config;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashingPool = Executors.newFixedThreadPool(Math.max(1, config.getThreads()), r -> {
+            Thread t = new Thread(r, "user-import-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        this.runner = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "user-import-runner");
+            t.setDaemon(true);
+            return t;
+        });
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(config.getJobRetention())
+                .build();
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+        hashingPool.shutdownNow();
+    }
+
+    @Override
+    public ImportJob submit(InputStream in, Format format) {
+        Path spool;
+        try {
+            spool = Files.createTempFile("user-import-", ".part");
+            Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to receive import file", e);
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID(), format, JobStatus.QUEUED, Instant.now(), null, null);
+        jobs.put(job.id(), job);
+        try {
+            runner.execute(() -> run(job, spool));
+        } catch (RejectedExecutionException e) {
+            deleteSpool(spool);
+            jobs.invalidate(job.id());
+            throw new IllegalStateException("User import is shutting down", e);
+        }
+        log.info("📥 User import job {} queued ({} bytes)", job.id(), spool.toFile().length());
+        return job;
+    }
+
+    @Override
+    public Optional<ImportJob> findJob(UUID id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    private void run(ImportJob job, Path spool) {
+        jobs.put(job.id(), job.withStatus(JobStatus.RUNNING, null, null));
+        try (InputStream in = Files.newInputStream(spool)) {
+            ImportReport report = importUsers(in, job.format());
+            jobs.put(job.id(), job.withStatus(JobStatus.DONE, report, null));
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ User import job {} failed: {}", job.id(), e.getMessage(), e);
+            jobs.put(job.id(), job.withStatus(JobStatus.FAILED, null, e.getMessage()));
+        } finally {
+            deleteSpool(spool);
+        }
+    }
+
+    private static void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("⚠️ Could not delete import spool file {}: {}", spool, e.getMessage());
+        }
+    }
+
+    @Override
+    public ImportReport importUsers(InputStream in, Format format) {
+        long start = System.nanoTime();
+        Progress progress = new Progress(config.getMaxReportedFailures());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            int[] csvColumns = null;
+            if (format == Format.CSV) {
+                csvColumns = csvHeader(reader.readLine());
+                lineNumber++;
+            }
+
+            List<ImportRow> chunk = new ArrayList<>(config.getChunkSize());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                progress.rows++;
+
+                try {
+                    UserDto dto = format == Format.CSV ? parseCsv(line, csvColumns) : parseJson(line);
+                    chunk.add(new ImportRow(lineNumber, dto, validate(dto)));
+                } catch (IllegalArgumentException e) {
+                    progress.fail(lineNumber, e.getMessage());
+                }
+
+                if (chunk.size() == config.getChunkSize()) {
+                    importChunk(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, progress);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import file", e);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("📥 User import finished: {} row(s), {} imported, {} failed in {} ms",
+                progress.rows, progress.imported, progress.failed, elapsedMillis);
+        return new ImportReport(progress.rows, progress.imported, progress.failed,
+                List.copyOf(progress.failures), elapsedMillis);
+    }
+
+    private void importChunk(List<ImportRow> chunk, Progress progress) {
+        List<ImportRow> rows = dropDuplicates(chunk, progress);
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = hashAll(rows);
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(rows, hashes));
+            progress.imported += rows.size();
+        } catch (DataAccessException e) {
+            // غالبًا مستخدم اتسجل في نفس اللحظة - نكمل صف صف عشان نعرف مين
+            log.warn("⚠️ Batch insert of {} user(s) failed: {} — retrying row by row",
+                    rows.size(), e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < rows.size(); i++) {
+                List<ImportRow> single = List.of(rows.get(i));
+                List<String> hash = List.of(hashes.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(single, hash));
+                    progress.imported++;
+                } catch (DataAccessException rowError) {
+                    progress.fail(rows.get(i).line(), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes rows whose email or username already exists, in the database or earlier in the same chunk.
+     * Earlier chunks are committed by then, so duplicates across chunks are found by the query.
+     */
+    private List<ImportRow> dropDuplicates(List<ImportRow> chunk, Progress progress) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("emails", chunk.stream().map(r -> r.user().getEmail()).toList())
+                .addValue("usernames", chunk.stream().map(r -> r.user().getUsername()).toList());
+        Set<String> existingEmails = new HashSet<>();
+        Set<String> existingUsernames = new HashSet<>();
+        namedJdbcTemplate.query(
+                "SELECT email, username FROM user_eco WHERE email IN (:emails) OR username IN (:usernames)",
+                params, rs -> {
+                    existingEmails.add(normalize(rs.getString(1)));
+                    existingUsernames.add(normalize(rs.getString(2)));
+                });
+
+        List<ImportRow> rows = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (!existingEmails.add(normalize(row.user().getEmail()))) {
+                progress.fail(row.line(), "Email already exists: " + row.user().getEmail());
+            } else if (!existingUsernames.add(normalize(row.user().getUsername()))) {
+                progress.fail(row.line(), "Username already exists: " + row.user().getUsername());
+            } else {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private List<String> hashAll(List<ImportRow> rows) {
+        List<Callable<String>> tasks = rows.stream()
+                .<Callable<String>>map(row -> () -> hasher.encode(row.user().getPassword()))
+                .toList();
+        try {
+            List<String> hashes = new ArrayList<>(rows.size());
+            for (Future<String> future : hashingPool.invokeAll(tasks)) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private void insert(List<ImportRow> rows, List<String> hashes) {
+        List<Object[]> users = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            UserDto user = rows.get(i).user();
+            users.add(new Object[]{user.getUsername(), hashes.get(i), user.getEmail(), user.getPhone()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, users);
+
+        // الـ ids بالـ email في query واحدة بدل generated keys لكل صف
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, email FROM user_eco WHERE email IN (:emails)",
+                new MapSqlParameterSource("emails", rows.stream().map(r -> r.user().getEmail()).toList()),
+                rs -> {
+                    ids.put(normalize(rs.getString(2)), rs.getLong(1));
+                });
+
+        List<Object[]> roles = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            Long userId = ids.get(normalize(row.user().getEmail()));
+            row.roles().forEach(role -> roles.add(new Object[]{role.name(), userId}));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROLE_SQL, roles);
+    }
+
+    private UserDto parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, UserDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private int[] csvHeader(String header) {
+        if (header == null) {
+            throw new InvalidImportFileException("CSV import is empty");
+        }
+        List<String> names = splitCsv(header).stream().map(n -> n.trim().toLowerCase(Locale.ROOT)).toList();
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+        }
+        for (int i = 0; i < 4; i++) {
+            if (columns[i] < 0) {
+                throw new InvalidImportFileException("CSV header is missing column: " + CSV_COLUMNS.get(i));
+            }
+        }
+        return columns;
+    }
+
+    private static UserDto parseCsv(String line, int[] columns) {
+        List<String> values = splitCsv(line);
+        UserDto dto = new UserDto();
+        dto.setUsername(column(values, columns[0]));
+        dto.setEmail(column(values, columns[1]));
+        dto.setPassword(column(values, columns[2]));
+        dto.setPhone(column(values, columns[3]));
+
+        String roles = column(values, columns[4]);
+        if (roles != null && !roles.isBlank()) {
+            dto.setRoles(Arrays.stream(roles.split("\\|")).map(name -> {
+                RoleDto role = new RoleDto();
+                role.setRole(name.trim());
+                return role;
+            }).toList());
+        }
+        return dto;
+    }
+
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * Splits one CSV record; supports quoted fields with {@code ""} escapes, not line breaks inside quotes.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * Same constraints as signup; returns the roles to insert (CUSTOMER when none are given).
+     */
+    private List<UserRole> validate(UserDto dto) {
+        Set<ConstraintViolation<UserDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.iterator().next().getMessage());
+        }
+        if (dto.getRoles() == null || dto.getRoles().isEmpty()) {
+            return List.of(UserRole.CUSTOMER);
+        }
+        return dto.getRoles().stream().map(role -> {
+            try {
+                return UserRole.valueOf(String.valueOf(role.getRole()).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown role: " + role.getRole());
+            }
+        }).distinct().toList();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private record ImportRow(long line, UserDto user, List<UserRole> roles) {
+    }
+
+    private static final class Progress {
+        private final int maxReportedFailures;
+        private final List<RowFailure> failures = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+
+        private Progress(int maxReportedFailures) {
+            this.maxReportedFailures = maxReportedFailures;
+        }
+
+        private void fail(long line, String reason) {
+            failed++;
+            if (failures.size() < maxReportedFailures) {
+                failures.add(new RowFailure(line, reason));
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- Switch token storage to digest-only (MySQL).
+--
+-- 1. Deploy with token.storage.keep-raw-value=true (the default).
+--    ddl-auto adds the token_hash columns and TokenDigestBackfill fills them at startup.
+-- 2. Run this script.
+-- 3. Redeploy with token.storage.keep-raw-value=false.
+
+-- token ---------------------------------------------------------------
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'token'
+               AND column_name = 'token' AND non_unique = 0 LIMIT 1);
+SET @sql := IF(@idx IS NULL, 'SELECT 1', CONCAT('ALTER TABLE token DROP INDEX ', @idx));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE token MODIFY token VARCHAR(1000) NULL;
+UPDATE token SET token = NULL WHERE token_hash IS NOT NULL;
+
+-- refresh_token -------------------------------------------------------
+SET @idx := (SELECT index_name FROM information_schema.statistics
+             WHERE table_schema = DATABASE() AND table_name = 'refresh_token'
+               AND column_name = 'token' AND non_unique = 0 LIMIT 1);
+SET @sql := IF(@idx IS NULL, 'SELECT 1', CONCAT('ALTER TABLE refresh_token DROP INDEX ', @idx));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE refresh_token MODIFY token VARCHAR(1000) NULL;
+UPDATE refresh_token SET token = NULL WHERE token_hash IS NOT NULL;
+
+OPTIMIZE TABLE token, refresh_token;
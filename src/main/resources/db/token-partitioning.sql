@@ -0,0 +1,72 @@
+-- Range-partition the token tables by expiry date (MySQL).
+--
+-- MySQL requires every unique key of a partitioned table to contain the partitioning column and
+-- does not allow foreign keys on it, so:
+--   * the primary key becomes (id, expiry_date),
+--   * the token_hash unique key becomes (token_hash, expiry_date),
+--   * any other unique key without expiry_date is dropped — notably the legacy one on the raw
+--     token column, still there if db/token-digest-migration.sql has not been run,
+--   * the user_id foreign keys are dropped (the user_id index is kept).
+-- Hibernate would try to recreate those constraints, so run with spring.jpa.hibernate.ddl-auto=none
+-- and token.partitioning.enabled=true once this script has been applied.
+--
+-- The tables start with one catch-all partition; TokenPartitionManager splits daily (or hourly)
+-- partitions off pmax at startup and on every cleanup run, and drops the expired ones.
+
+-- token ---------------------------------------------------------------
+SET @fk := (SELECT constraint_name FROM information_schema.referential_constraints
+            WHERE constraint_schema = DATABASE() AND table_name = 'token' LIMIT 1);
+SET @sql := IF(@fk IS NULL, 'SELECT 1', CONCAT('ALTER TABLE token DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drops := (SELECT GROUP_CONCAT(CONCAT('DROP INDEX `', index_name, '`') SEPARATOR ', ')
+               FROM (SELECT index_name FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'token'
+                       AND non_unique = 0 AND index_name <> 'PRIMARY'
+                     GROUP BY index_name
+                     HAVING SUM(column_name = 'expiry_date') = 0) unique_keys);
+SET @sql := IF(@drops IS NULL, 'SELECT 1', CONCAT('ALTER TABLE token ', @drops));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE token
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, expiry_date),
+    ADD UNIQUE KEY uk_token_hash_expiry (token_hash, expiry_date);
+
+ALTER TABLE token
+    PARTITION BY RANGE COLUMNS (expiry_date) (
+        PARTITION pmax VALUES LESS THAN (MAXVALUE)
+    );
+
+-- refresh_token -------------------------------------------------------
+SET @fk := (SELECT constraint_name FROM information_schema.referential_constraints
+            WHERE constraint_schema = DATABASE() AND table_name = 'refresh_token' LIMIT 1);
+SET @sql := IF(@fk IS NULL, 'SELECT 1', CONCAT('ALTER TABLE refresh_token DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drops := (SELECT GROUP_CONCAT(CONCAT('DROP INDEX `', index_name, '`') SEPARATOR ', ')
+               FROM (SELECT index_name FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'refresh_token'
+                       AND non_unique = 0 AND index_name <> 'PRIMARY'
+                     GROUP BY index_name
+                     HAVING SUM(column_name = 'expiry_date') = 0) unique_keys);
+SET @sql := IF(@drops IS NULL, 'SELECT 1', CONCAT('ALTER TABLE refresh_token ', @drops));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE refresh_token
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, expiry_date),
+    ADD UNIQUE KEY uk_refresh_token_hash_expiry (token_hash, expiry_date);
+
+ALTER TABLE refresh_token
+    PARTITION BY RANGE COLUMNS (expiry_date) (
+        PARTITION pmax VALUES LESS THAN (MAXVALUE)
+    );
@@ -0,0 +1,11 @@
+-- Unique email / username on user_eco (MySQL).
+--
+-- ddl-auto=update adds uk_user_eco_email and uk_user_eco_username on its own, but it only logs a
+-- warning when existing rows violate them. Check for duplicates first and resolve them by hand:
+
+SELECT email, COUNT(*) FROM user_eco GROUP BY email HAVING COUNT(*) > 1;
+SELECT username, COUNT(*) FROM user_eco GROUP BY username HAVING COUNT(*) > 1;
+
+-- Then, if ddl-auto is not used:
+-- ALTER TABLE user_eco ADD CONSTRAINT uk_user_eco_email UNIQUE (email);
+-- ALTER TABLE user_eco ADD CONSTRAINT uk_user_eco_username UNIQUE (username);
@@ -0,0 +1,143 @@
+package org.example.mobilyecommerce.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.exception.ErrorDetails;
+import org.example.mobilyecommerce.exception.GlobalExceptionHandler;
+import org.example.mobilyecommerce.exception.PasswordHashingBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+    /** Holds every hash until released, so the pool stays busy. */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        encoder = encoder(Duration.ofSeconds(5));
+        Future<Boolean> running = callers.submit(() -> encoder.matches("secret", "secret"));
+        Future<Boolean> queued = callers.submit(() -> encoder.matches("secret", "secret"));
+        awaitQueued(1);
+
+        assertThatThrownBy(() -> encoder.matches("secret", "secret"))
+                .isInstanceOfSatisfying(PasswordHashingBusyException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2));
+        assertThat(meterRegistry.counter("password.hashing.rejected").count()).isEqualTo(1);
+
+        // اللي كانوا جوه الـ pool بيكملوا عادي
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectsHashThatTakesTooLong() {
+        encoder = encoder(Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> encoder.encode("secret")).isInstanceOf(PasswordHashingBusyException.class);
+    }
+
+    @Test
+    void loginWhileBusyIsNotTurnedIntoBadCredentials() throws Exception {
+        encoder = encoder(Duration.ofSeconds(5));
+        callers.submit(() -> encoder.matches("secret", "secret"));
+        callers.submit(() -> encoder.matches("secret", "secret"));
+        awaitQueued(1);
+
+        UserDetailsService users = mock(UserDetailsService.class);
+        when(users.loadUserByUsername("user@example.com"))
+                .thenReturn(User.withUsername("user@example.com").password("secret").build());
+        ProviderManager authenticationManager = new ProviderManager(new UserNamePasswordAuthenticationProvider(
+                users, mock(UserDetailsPasswordService.class), encoder));
+
+        assertThatThrownBy(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("user@example.com", "secret")))
+                .isInstanceOf(PasswordHashingBusyException.class);
+    }
+
+    @Test
+    void busyBecomes503WithRetryAfter() {
+        ResponseEntity<ErrorDetails> response = new GlobalExceptionHandler().handlePasswordHashingBusy(
+                new PasswordHashingBusyException("Authentication service is busy. Please try again shortly.", 2),
+                new MockHttpServletRequest("POST", "/api/v1/auth/login"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /**
+     * One hashing thread and one queue slot.
+     */
+    private BoundedPasswordEncoder encoder(Duration timeout) {
+        PasswordHashing config = new PasswordHashing();
+        config.setThreads(1);
+        config.setQueueCapacity(1);
+        config.setTimeout(timeout);
+        config.setRetryAfter(Duration.ofSeconds(2));
+        return new BoundedPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                await();
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                await();
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        }, config, meterRegistry);
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitQueued(int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("password.hashing.queue").gauge().value() < size) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class Bucket4jRateLimitFilterTest {
+
+    private static final String LOGIN = "/api/v1/auth/login";
+    private static final String PRODUCT = "/api/v1/products/{id}";
+
+    /** End of the chain: the request went through. */
+    static final HttpServlet OK = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) {
+        }
+    };
+
+    /** Requests that got past the filter, to the token check. */
+    private final AtomicInteger checkedTokens = new AtomicInteger();
+    private Bucket4jRateLimitFilter filter;
+
+    @Test
+    void apiKeyBucketIsPerKeyAndAddress() throws Exception {
+        filter(RateLimit.KeyStrategy.API_KEY);
+
+        assertThat(status(apiKey("key-a", "10.0.0.1"))).isEqualTo(200);
+        assertThat(status(apiKey("key-a", "10.0.0.1"))).isEqualTo(429);
+
+        assertThat(status(apiKey("key-b", "10.0.0.1"))).isEqualTo(200);
+        // نفس الـ key من عنوان تاني ما بيسحبش من bucket صاحبه
+        assertThat(status(apiKey("key-a", "10.0.0.2"))).isEqualTo(200);
+    }
+
+    @Test
+    void fallsBackToClientKeyWithoutApiKey() throws Exception {
+        filter(RateLimit.KeyStrategy.API_KEY);
+
+        assertThat(status(apiKey(null, "10.0.0.1"))).isEqualTo(200);
+        assertThat(status(apiKey(null, "10.0.0.1"))).isEqualTo(429);
+        assertThat(status(apiKey("key-a", "10.0.0.1"))).isEqualTo(200);
+    }
+
+    @Test
+    void bearerRequestsCountAgainstClientBucket() throws Exception {
+        filter(RateLimit.KeyStrategy.IP);
+
+        assertThat(status(request(PRODUCT, "Bearer valid"))).isEqualTo(200);
+        assertThat(status(request(PRODUCT, "Bearer valid"))).isEqualTo(429);
+        assertThat(status(request(PRODUCT, null))).isEqualTo(429);
+    }
+
+    @Test
+    void rejectedTokensCostNoMoreThanOtherRequests() throws Exception {
+        filter(RateLimit.KeyStrategy.IP, 2);
+
+        assertThat(status(request(PRODUCT, "Bearer forged"))).isEqualTo(401);
+        // التوكن المرفوض اتحسب مرة واحدة زي أي طلب - الـ budget لسه فيه مكان
+        assertThat(status(request(PRODUCT, "Bearer valid"))).isEqualTo(200);
+        assertThat(status(request(PRODUCT, "Bearer forged"))).isEqualTo(429);
+        assertThat(checkedTokens.get()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectedTokensDoNotDrainOtherClientsOnSameAddress() throws Exception {
+        filter(RateLimit.KeyStrategy.IP);
+
+        assertThat(status(request(PRODUCT, "Bearer forged"))).isEqualTo(401);
+        assertThat(status(request(PRODUCT, "Bearer forged"))).isEqualTo(429);
+
+        MockHttpServletRequest other = request(PRODUCT, "Bearer valid");
+        other.removeHeader("User-Agent");
+        other.addHeader("User-Agent", "okhttp/4.12");
+        assertThat(status(other)).isEqualTo(200);
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void filter(RateLimit.KeyStrategy key) {
+        filter(key, 1);
+    }
+
+    /**
+     * The filter with one client policy, routes resolved from the URI itself.
+     */
+    @SuppressWarnings("unchecked")
+    private void filter(RateLimit.KeyStrategy key, long capacity) {
+        RateLimit config = new RateLimit();
+        config.setPolicies(List.of(RateLimitPoliciesTest.policy("/**", key, capacity)));
+        RateLimitPolicies policies = new RateLimitPolicies(config);
+        RateLimitBuckets buckets = new RateLimitBuckets(config, policies, mock(ObjectProvider.class),
+                new SimpleMeterRegistry());
+        filter = new Bucket4jRateLimitFilter(routeTemplates(), policies, buckets);
+    }
+
+    static RouteTemplates routeTemplates() {
+        RouteTemplates routeTemplates = mock(RouteTemplates.class);
+        when(routeTemplates.resolve(any())).thenAnswer(invocation -> {
+            String uri = invocation.<MockHttpServletRequest>getArgument(0).getRequestURI();
+            return new RouteTemplates.Route(uri, uri.equals(LOGIN), null);
+        });
+        return routeTemplates;
+    }
+
+    private int status(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // بديل الـ JwtFilter: أي توكن غير "valid" بيترفض بـ 401
+        Filter tokenCheck = (req, res, chain) -> {
+            String header = ((MockHttpServletRequest) req).getHeader("Authorization");
+            if (header != null) {
+                checkedTokens.incrementAndGet();
+                if (!header.equals("Bearer valid")) {
+                    ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
+            }
+            chain.doFilter(req, res);
+        };
+        new MockFilterChain(OK, filter, tokenCheck).doFilter(request, response);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String uri, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("User-Agent", "curl/8.0");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    private static MockHttpServletRequest apiKey(String apiKey, String ip) {
+        MockHttpServletRequest request = request(PRODUCT, null);
+        request.setRemoteAddr(ip);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+}
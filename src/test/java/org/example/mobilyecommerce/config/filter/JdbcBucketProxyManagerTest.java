@@ -0,0 +1,125 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcBucketProxyManagerTest {
+
+    private static final BucketConfiguration THREE_PER_MINUTE = BucketConfiguration.builder()
+            .addLimit(Bandwidth.simple(3, Duration.ofMinutes(1)))
+            .build();
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcBucketProxyManager proxyManager;
+
+    @BeforeEach
+    void setUp() {
+        // كل test ليها database لوحدها
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:buckets-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE rate_limit_bucket ("
+                + "id VARCHAR(64) PRIMARY KEY, state VARBINARY(4096), expires_at BIGINT NOT NULL)");
+        proxyManager = newProxyManager();
+    }
+
+    @Test
+    void insertsBucketThenLocksAndUpdatesIt() {
+        Bucket bucket = proxyManager.builder().build("client:1.2.3.4", THREE_PER_MINUTE);
+
+        assertThat(bucket.tryConsume(1)).isTrue();
+        assertThat(rows()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT state FROM rate_limit_bucket", byte[].class)).isNotEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT expires_at FROM rate_limit_bucket", Long.class))
+                .isGreaterThan(System.currentTimeMillis());
+
+        assertThat(bucket.tryConsume(1)).isTrue();
+        assertThat(bucket.tryConsume(1)).isTrue();
+        assertThat(bucket.tryConsume(1)).isFalse();
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void nodesDrawFromTheSameBucket() {
+        Bucket first = proxyManager.builder().build("client:1.2.3.4", THREE_PER_MINUTE);
+        Bucket second = newProxyManager().builder().build("client:1.2.3.4", THREE_PER_MINUTE);
+
+        assertThat(first.tryConsume(2)).isTrue();
+        assertThat(second.tryConsume(1)).isTrue();
+        assertThat(second.tryConsume(1)).isFalse();
+        assertThat(first.tryConsume(1)).isFalse();
+    }
+
+    @Test
+    void retriesLockWhenAnotherNodeInsertedFirst() {
+        SelectForUpdateBasedTransaction loser = proxyManager.allocateTransaction("client:1.2.3.4");
+        SelectForUpdateBasedTransaction winner = newProxyManager().allocateTransaction("client:1.2.3.4");
+        try {
+            loser.begin();
+            assertThat(loser.tryLockAndGet().isLocked()).isFalse();
+
+            winner.begin();
+            assertThat(winner.tryInsertEmptyData()).isTrue();
+            winner.commit();
+
+            // duplicate key: مش error، الـ lock بيتعاد على الـ row اللي اتعمل
+            assertThat(loser.tryInsertEmptyData()).isFalse();
+            LockAndGetResult result = loser.tryLockAndGet();
+            assertThat(result.isLocked()).isTrue();
+            assertThat(result.getData()).isNull();
+            loser.commit();
+        } finally {
+            winner.release();
+            loser.release();
+        }
+
+        assertThat(rows()).isEqualTo(1);
+        assertThat(proxyManager.builder().build("client:1.2.3.4", THREE_PER_MINUTE).tryConsume(3)).isTrue();
+    }
+
+    @Test
+    void removeProxyStartsBucketOver() {
+        Bucket bucket = proxyManager.builder().build("client:1.2.3.4", THREE_PER_MINUTE);
+        assertThat(bucket.tryConsume(3)).isTrue();
+
+        proxyManager.removeProxy("client:1.2.3.4");
+
+        assertThat(rows()).isZero();
+        assertThat(proxyManager.builder().build("client:1.2.3.4", THREE_PER_MINUTE).tryConsume(3)).isTrue();
+    }
+
+    @Test
+    void purgesOnlyIdleBuckets() {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update("INSERT INTO rate_limit_bucket (id, state, expires_at) VALUES (?, NULL, ?)", "idle", now - 1000);
+        jdbcTemplate.update("INSERT INTO rate_limit_bucket (id, state, expires_at) VALUES (?, NULL, ?)", "active", now + 60_000);
+
+        proxyManager.purgeIdleBuckets();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM rate_limit_bucket", String.class)).containsExactly("active");
+    }
+
+    private JdbcBucketProxyManager newProxyManager() {
+        RateLimit config = new RateLimit();
+        config.setIdleTimeout(Duration.ofMinutes(15));
+        return new JdbcBucketProxyManager(dataSource, jdbcTemplate, config);
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rate_limit_bucket", Integer.class);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.model.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RateLimitBucketsTest {
+
+    private static final String TEMPLATE = "/api/v1/products/{id}";
+
+    @TempDir
+    Path directory;
+
+    private final Semaphore reloads = new Semaphore(0);
+    private long version = 1_000_000;
+    private RateLimitPolicies policies;
+    private RateLimitBuckets buckets;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        write("""
+                policies:
+                  - route: /**
+                    capacity: 10
+                    refill-period: 1h
+                  - route: /**
+                    key: USER
+                    capacity: 4
+                    refill-period: 1h
+                """);
+        RateLimit config = new RateLimit();
+        config.setPoliciesFile(directory.resolve("policies.yml").toString());
+        config.setReloadInterval(Duration.ofMillis(20));
+        policies = new RateLimitPolicies(config);
+        // local buckets: مفيش JdbcBucketProxyManager
+        buckets = new RateLimitBuckets(config, policies, mock(ObjectProvider.class), new SimpleMeterRegistry());
+        policies.addReloadListener(reloads::release);
+        policies.start();
+        reloads.drainPermits();
+    }
+
+    @AfterEach
+    void tearDown() {
+        policies.stop();
+    }
+
+    @Test
+    void keepsBucketsApartPerStageKeyAndTemplate() {
+        consume(RateLimitPolicies.Stage.CLIENT, "1.2.3.4|curl", TEMPLATE, 10);
+
+        assertThat(consume(RateLimitPolicies.Stage.CLIENT, "1.2.3.4|curl", TEMPLATE)).isEqualTo(-1);
+        assertThat(consume(RateLimitPolicies.Stage.CLIENT, "1.2.3.4|curl", "/api/v1/products/latest")).isEqualTo(9);
+        assertThat(consume(RateLimitPolicies.Stage.CLIENT, "5.6.7.8|curl", TEMPLATE)).isEqualTo(9);
+        assertThat(consume(RateLimitPolicies.Stage.USER, "1.2.3.4|curl", TEMPLATE)).isEqualTo(3);
+    }
+
+    @Test
+    void migratesBucketsProportionallyOnReload() throws Exception {
+        consume(RateLimitPolicies.Stage.CLIENT, "1.2.3.4|curl", TEMPLATE, 4);
+
+        reload("""
+                policies:
+                  - route: /**
+                    capacity: 20
+                    refill-period: 1h
+                  - route: /**
+                    key: USER
+                    capacity: 4
+                    refill-period: 1h
+                """);
+
+        // 6 من 10 باقيين = 12 من 20، وناقص اللي اتسحب دلوقتي
+        assertThat(consume(RateLimitPolicies.Stage.CLIENT, "1.2.3.4|curl", TEMPLATE)).isEqualTo(11);
+    }
+
+    @Test
+    void dropsBucketsOfStageThatLostItsPolicy() throws Exception {
+        consume(RateLimitPolicies.Stage.USER, "user:1", TEMPLATE, 3);
+
+        reload("""
+                policies:
+                  - route: /**
+                    capacity: 10
+                    refill-period: 1h
+                """);
+        assertThat(policies.resolve(RateLimitPolicies.Stage.USER, TEMPLATE, (UserRole) null)).isNull();
+
+        reload("""
+                policies:
+                  - route: /**
+                    capacity: 10
+                    refill-period: 1h
+                  - route: /**
+                    key: USER
+                    capacity: 4
+                    refill-period: 1h
+                """);
+
+        assertThat(consume(RateLimitPolicies.Stage.USER, "user:1", TEMPLATE)).isEqualTo(3);
+    }
+
+    /**
+     * @return tokens left after the last one taken, -1 when it was refused
+     */
+    private long consume(RateLimitPolicies.Stage stage, String key, String template, int times) {
+        long remaining = -1;
+        for (int i = 0; i < times; i++) {
+            remaining = consume(stage, key, template);
+        }
+        return remaining;
+    }
+
+    private long consume(RateLimitPolicies.Stage stage, String key, String template) {
+        var probe = buckets.tryConsume(stage, key, template, policies.resolve(stage, template, (UserRole) null));
+        return probe.isConsumed() ? probe.getRemainingTokens() : -1;
+    }
+
+    private void reload(String yaml) throws Exception {
+        write(yaml);
+        assertThat(reloads.tryAcquire(5, TimeUnit.SECONDS)).as("policies reloaded").isTrue();
+    }
+
+    private void write(String yaml) throws Exception {
+        Path file = directory.resolve("policies.yml");
+        Files.writeString(file, yaml);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(version += 1000));
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.mobilyecommerce.config.filter;
+
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+import org.example.mobilyecommerce.model.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitPoliciesTest {
+
+    @TempDir
+    Path directory;
+
+    private RateLimitPolicies policies;
+    private final Semaphore reloads = new Semaphore(0);
+    private long version = 1_000_000;
+
+    @AfterEach
+    void tearDown() {
+        if (policies != null) {
+            policies.stop();
+        }
+    }
+
+    @Test
+    void splitsPoliciesIntoStages() {
+        RateLimit config = new RateLimit();
+        config.setPolicies(List.of(
+                policy("/api/v1/auth/login", RateLimit.KeyStrategy.IP, 15),
+                policy("/api/v1/products/**", RateLimit.KeyStrategy.USER, 300)));
+        policies = new RateLimitPolicies(config);
+
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, "/api/v1/auth/login")).isEqualTo(15);
+        assertThat(capacity(RateLimitPolicies.Stage.USER, "/api/v1/products/{id}")).isEqualTo(300);
+
+        // الـ client stage ليها fallback، الـ user stage لأ
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, "/api/v1/products/{id}")).isEqualTo(60);
+        assertThat(policies.resolve(RateLimitPolicies.Stage.USER, "/api/v1/auth/login", (UserRole) null)).isNull();
+    }
+
+    @Test
+    void unmatchedRequestsGetTheCatchAll() {
+        RateLimit config = new RateLimit();
+        config.setPolicies(List.of(
+                policy("/api/v1/auth/login", RateLimit.KeyStrategy.IP, 15),
+                policy("/**", RateLimit.KeyStrategy.IP, 100)));
+        policies = new RateLimitPolicies(config);
+
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, RouteTemplates.UNMATCHED)).isEqualTo(100);
+    }
+
+    @Test
+    void appliesFirstOverriddenRoleOfPrincipal() {
+        RateLimit.Policy policy = policy("/**", RateLimit.KeyStrategy.USER, 300);
+        RateLimit.Limit admin = new RateLimit.Limit();
+        admin.setCapacity(1000);
+        admin.setRefillPeriod(Duration.ofMinutes(15));
+        policy.getRoles().put(UserRole.ADMIN, admin);
+        RateLimit config = new RateLimit();
+        config.setPolicies(List.of(policy));
+        policies = new RateLimitPolicies(config);
+
+        AuthenticatedUser customer = AuthenticatedUser.of(1L, "customer", List.of(UserRole.CUSTOMER));
+        AuthenticatedUser administrator = AuthenticatedUser.of(2L, "admin", List.of(UserRole.CUSTOMER, UserRole.ADMIN));
+
+        RateLimitPolicies.Resolved forCustomer = policies.resolve(RateLimitPolicies.Stage.USER, "/api/v1/products", customer);
+        RateLimitPolicies.Resolved forAdmin = policies.resolve(RateLimitPolicies.Stage.USER, "/api/v1/products", administrator);
+
+        assertThat(forCustomer.role()).isNull();
+        assertThat(forCustomer.configuration().getBandwidths()[0].getCapacity()).isEqualTo(300);
+        assertThat(forAdmin.role()).isEqualTo(UserRole.ADMIN);
+        assertThat(forAdmin.configuration().getBandwidths()[0].getCapacity()).isEqualTo(1000);
+    }
+
+    @Test
+    void reloadsChangedPoliciesFile() throws Exception {
+        start("""
+                policies:
+                  - route: /api/v1/auth/login
+                    capacity: 15
+                    refill-period: 10m
+                """);
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, "/api/v1/auth/login")).isEqualTo(15);
+
+        reload("""
+                policies:
+                  - route: /api/v1/auth/login
+                    capacity: 5
+                    refill-period: 10m
+                  - route: /**
+                    key: USER
+                    capacity: 300
+                    refill-period: 15m
+                """);
+
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, "/api/v1/auth/login")).isEqualTo(5);
+        assertThat(capacity(RateLimitPolicies.Stage.USER, "/api/v1/auth/login")).isEqualTo(300);
+    }
+
+    @Test
+    void keepsPreviousPoliciesWhenFileIsInvalid() throws Exception {
+        start("""
+                policies:
+                  - route: /api/v1/auth/login
+                    capacity: 15
+                    refill-period: 10m
+                """);
+
+        write("""
+                policies:
+                  - route: /api/v1/auth/login
+                    capacity: 0
+                    refill-period: 10m
+                """);
+
+        assertThat(reloads.tryAcquire(500, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(capacity(RateLimitPolicies.Stage.CLIENT, "/api/v1/auth/login")).isEqualTo(15);
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void start(String yaml) throws Exception {
+        write(yaml);
+        RateLimit config = new RateLimit();
+        config.setPoliciesFile(directory.resolve("policies.yml").toString());
+        config.setReloadInterval(Duration.ofMillis(20));
+        policies = new RateLimitPolicies(config);
+        policies.addReloadListener(reloads::release);
+        policies.start();
+        reloads.drainPermits();
+    }
+
+    private void reload(String yaml) throws Exception {
+        write(yaml);
+        assertThat(reloads.tryAcquire(5, TimeUnit.SECONDS)).as("policies reloaded").isTrue();
+    }
+
+    private void write(String yaml) throws IOException {
+        Path file = directory.resolve("policies.yml");
+        Files.writeString(file, yaml);
+        // الـ mtime بيتغير أكيد حتى لو الكتابتين في نفس الـ millisecond
+        Files.setLastModifiedTime(file, FileTime.fromMillis(version += 1000));
+    }
+
+    private long capacity(RateLimitPolicies.Stage stage, String template) {
+        return policies.resolve(stage, template, (UserRole) null).configuration().getBandwidths()[0].getCapacity();
+    }
+
+    static RateLimit.Policy policy(String route, RateLimit.KeyStrategy key, long capacity) {
+        RateLimit.Policy policy = new RateLimit.Policy();
+        policy.setRoute(route);
+        policy.setKey(key);
+        policy.setCapacity(capacity);
+        policy.setRefillPeriod(Duration.ofHours(1));
+        return policy;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.mobilyecommerce.config.filter;
+
+import org.example.mobilyecommerce.config.iwt.TokenHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RouteTemplatesTest {
+
+    private final RouteTemplates routeTemplates = routeTemplates(
+            "/api/v1/auth/login",
+            "/api/v1/auth/signup",
+            "/api/v1/auth/reset-password",
+            "/api/v1/auth/refresh",
+            "/.well-known/jwks.json",
+            "/api/v1/products/{id}",
+            "/api/v1/products/latest",
+            "/api/v1/products/category/{categoryId}",
+            "/api/files/{filename:.+}");
+
+    @Test
+    void resolvesLiteralRoutesBeforeTemplates() {
+        assertThat(template("/api/v1/products/latest")).isEqualTo("/api/v1/products/latest");
+        assertThat(template("/api/v1/products/42")).isEqualTo("/api/v1/products/{id}");
+    }
+
+    @Test
+    void resolvesMostSpecificTemplate() {
+        assertThat(template("/api/v1/products/category/7")).isEqualTo("/api/v1/products/category/{categoryId}");
+        assertThat(template("/api/files/report.pdf")).isEqualTo("/api/files/{filename:.+}");
+    }
+
+    @Test
+    void unknownPathsShareOneTemplate() {
+        assertThat(template("/api/v1/unknown")).isEqualTo(RouteTemplates.UNMATCHED);
+        assertThat(template("/api/v1/products/42/extra")).isEqualTo(RouteTemplates.UNMATCHED);
+        assertThat(routeTemplates.resolve(request("/api/v1/unknown")).skipsAuthentication()).isFalse();
+    }
+
+    @Test
+    void resolvesPathWithinContextPath() {
+        MockHttpServletRequest request = request("/shop/api/v1/products/42");
+        request.setContextPath("/shop");
+
+        assertThat(routeTemplates.resolve(request).template()).isEqualTo("/api/v1/products/{id}");
+    }
+
+    @Test
+    void keepsRouteOnRequest() {
+        MockHttpServletRequest request = request("/api/v1/products/42");
+
+        assertThat(routeTemplates.resolve(request)).isSameAs(routeTemplates.resolve(request));
+    }
+
+    @Test
+    void jwtFilterSkipsOnlyUnauthenticatedRoutes() {
+        JwtFilter filter = new JwtFilter(mock(TokenHandler.class), routeTemplates);
+
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/login"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/signup"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/reset-password"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/.well-known/jwks.json"))).isTrue();
+
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/refresh"))).isFalse();
+        assertThat(filter.shouldNotFilter(request("/api/v1/products/42"))).isFalse();
+        // شبه الـ login بس مش هو
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/login/extra"))).isFalse();
+        assertThat(filter.shouldNotFilter(request("/api/v1/auth/loginx"))).isFalse();
+    }
+
+    private String template(String uri) {
+        return routeTemplates.resolve(request(uri)).template();
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static RouteTemplates routeTemplates(String... paths) {
+        RequestMappingInfo.BuilderConfiguration config = new RequestMappingInfo.BuilderConfiguration();
+        config.setPatternParser(new PathPatternParser());
+
+        Map<RequestMappingInfo, HandlerMethod> handlerMethods = new HashMap<>();
+        for (String path : paths) {
+            handlerMethods.put(RequestMappingInfo.paths(path).options(config).build(), mock(HandlerMethod.class));
+        }
+        RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+        when(handlerMapping.getHandlerMethods()).thenReturn(handlerMethods);
+        return new RouteTemplates(handlerMapping);
+    }
+}
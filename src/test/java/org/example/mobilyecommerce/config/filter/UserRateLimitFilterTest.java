@@ -0,0 +1,140 @@
+package org.example.mobilyecommerce.config.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.mobilyecommerce.config.RateLimit;
+import org.example.mobilyecommerce.config.iwt.AuthenticatedUser;
+import org.example.mobilyecommerce.model.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Both rate-limit stages together, with a stand-in for {@link JwtFilter} in between.
+ */
+class UserRateLimitFilterTest {
+
+    private static final String PRODUCT = "/api/v1/products/42";
+    private static final String CATEGORY = "/api/v1/categories/7";
+
+    private Bucket4jRateLimitFilter clientFilter;
+    private UserRateLimitFilter userFilter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RateLimit config = new RateLimit();
+        config.setPolicies(List.of(
+                RateLimitPoliciesTest.policy("/**", RateLimit.KeyStrategy.IP, 10),
+                RateLimitPoliciesTest.policy("/**", RateLimit.KeyStrategy.USER, 3)));
+        RateLimitPolicies policies = new RateLimitPolicies(config);
+        RateLimitBuckets buckets = new RateLimitBuckets(config, policies, mock(ObjectProvider.class),
+                new SimpleMeterRegistry());
+        RouteTemplates routeTemplates = Bucket4jRateLimitFilterTest.routeTemplates();
+
+        clientFilter = new Bucket4jRateLimitFilter(routeTemplates, policies, buckets);
+        userFilter = new UserRateLimitFilter(routeTemplates, policies, buckets);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void usersBehindOneAddressDoNotShareBudget() throws Exception {
+        // كل user ليه الـ quota بتاعه (3) جوه الـ client limit (10) بتاع العنوان
+        for (int i = 0; i < 3; i++) {
+            assertThat(status(PRODUCT, 1L, "10.0.0.1")).isEqualTo(200);
+        }
+        assertThat(status(PRODUCT, 1L, "10.0.0.1")).isEqualTo(429);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(status(PRODUCT, 2L, "10.0.0.1")).isEqualTo(200);
+        }
+        assertThat(status(PRODUCT, 2L, "10.0.0.1")).isEqualTo(429);
+    }
+
+    @Test
+    void userKeepsBudgetAcrossAddresses() throws Exception {
+        assertThat(status(PRODUCT, 1L, "10.0.0.1")).isEqualTo(200);
+        assertThat(status(PRODUCT, 1L, "10.0.0.2")).isEqualTo(200);
+        assertThat(status(PRODUCT, 1L, "10.0.0.3")).isEqualTo(200);
+        assertThat(status(PRODUCT, 1L, "10.0.0.4")).isEqualTo(429);
+    }
+
+    @Test
+    void userBucketIsPerRouteTemplate() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(status(PRODUCT, 1L, "10.0.0.1")).isEqualTo(200);
+        }
+        assertThat(status(PRODUCT, 1L, "10.0.0.1")).isEqualTo(429);
+        assertThat(status(CATEGORY, 1L, "10.0.0.1")).isEqualTo(200);
+    }
+
+    @Test
+    void anonymousRequestsOnlyCountPerAddress() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(status(PRODUCT, null, "10.0.0.1")).isEqualTo(200);
+        }
+        assertThat(status(PRODUCT, null, "10.0.0.1")).isEqualTo(429);
+    }
+
+    @Test
+    void authenticatedRequestsStillCountPerAddress() throws Exception {
+        for (long user = 1; user <= 3; user++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(status(PRODUCT, user, "10.0.0.1")).isEqualTo(200);
+            }
+        }
+        assertThat(status(PRODUCT, 4L, "10.0.0.1")).isEqualTo(200);
+
+        // user 4 لسه عنده quota بس العنوان خلّص الـ 10 بتوعه
+        assertThat(status(PRODUCT, 4L, "10.0.0.1")).isEqualTo(429);
+        assertThat(status(PRODUCT, 4L, "10.0.0.2")).isEqualTo(200);
+    }
+
+    /**
+     * @param userId the authenticated user, null for an anonymous request
+     */
+    private int status(String uri, Long userId, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(ip);
+        request.addHeader("User-Agent", "curl/8.0");
+        if (userId != null) {
+            request.addHeader("Authorization", "Bearer user-" + userId);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // بديل الـ JwtFilter: الـ principal من الـ header
+        Filter authentication = (req, res, chain) -> {
+            String header = ((HttpServletRequest) req).getHeader("Authorization");
+            if (header != null) {
+                Long id = Long.valueOf(header.substring("Bearer user-".length()));
+                AuthenticatedUser user = AuthenticatedUser.of(id, "user-" + id, List.of(UserRole.CUSTOMER));
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(user, null, user.authorities()));
+            }
+            chain.doFilter(req, res);
+        };
+        try {
+            new MockFilterChain(Bucket4jRateLimitFilterTest.OK, clientFilter, authentication, userFilter)
+                    .doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
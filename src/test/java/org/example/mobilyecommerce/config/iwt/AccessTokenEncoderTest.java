@@ -0,0 +1,128 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.example.mobilyecommerce.model.UserRole;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessTokenEncoderTest {
+
+    private static final String SECRET = "test-secret-".repeat(6);
+    private static final long ISSUED_AT = 1_767_225_600L;
+    private static final long EXPIRES_AT = 4_102_444_800L;
+
+    @ParameterizedTest
+    @EnumSource(JwtToken.Algorithm.class)
+    void producesWhatJjwtWouldForEveryAlgorithm(JwtToken.Algorithm algorithm) throws Exception {
+        Setup setup = setup(algorithm);
+        AuthenticatedUser user = AuthenticatedUser.of(42L, "mohamed", List.of(UserRole.ADMIN, UserRole.CUSTOMER));
+
+        Jws<Claims> encoded = setup.parser().parseClaimsJws(setup.keys().encoder().encode(user, 3, ISSUED_AT, EXPIRES_AT));
+        Jws<Claims> reference = setup.parser().parseClaimsJws(jjwt(setup, user, 3));
+
+        assertThat(encoded.getHeader().getAlgorithm()).isEqualTo(algorithm.name());
+        assertThat(encoded.getHeader().getKeyId()).isEqualTo("k1");
+        assertThat(encoded.getBody()).isEqualTo(reference.getBody());
+        assertThat(encoded.getBody().get(AccessTokenEncoder.CLAIM_ROLES)).isEqualTo(List.of("ADMIN", "CUSTOMER"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = JwtToken.Algorithm.class, names = {"HS512", "ES256"})
+    void escapesUsernamesLikeJjwt(JwtToken.Algorithm algorithm) throws Exception {
+        Setup setup = setup(algorithm);
+        // علامات تنصيص، backslash، control chars، عربي و surrogate pair
+        AuthenticatedUser user = AuthenticatedUser.of(7L, "a\"b\\c\n\u0001 محمد 😀", List.of());
+
+        Claims encoded = setup.parser().parseClaimsJws(setup.keys().encoder().encode(user, 0, ISSUED_AT, EXPIRES_AT))
+                .getBody();
+
+        assertThat(encoded).isEqualTo(setup.parser().parseClaimsJws(jjwt(setup, user, 0)).getBody());
+        assertThat(encoded.get(AccessTokenEncoder.CLAIM_USERNAME)).isEqualTo(user.username());
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /**
+     * The same claim set built with {@code Jwts.builder()}, signed with the same key.
+     */
+    private static String jjwt(Setup setup, AuthenticatedUser user, long epoch) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put(AccessTokenEncoder.CLAIM_TYPE, AccessTokenEncoder.ACCESS_TYPE);
+        claims.put(AccessTokenEncoder.CLAIM_USER_ID, user.id());
+        claims.put(AccessTokenEncoder.CLAIM_USERNAME, user.username());
+        claims.put(AccessTokenEncoder.CLAIM_ROLES, user.roles().stream().map(UserRole::name).toList());
+        claims.put(AccessTokenEncoder.CLAIM_EPOCH, epoch);
+        return Jwts.builder()
+                .setHeaderParam("kid", "k1")
+                .setClaims(claims)
+                .setSubject("Mobily.cloud")
+                .setIssuedAt(new Date(ISSUED_AT * 1000))
+                .setExpiration(new Date(EXPIRES_AT * 1000))
+                .signWith(setup.signingKey(), SignatureAlgorithm.forName(setup.algorithm().name()))
+                .compact();
+    }
+
+    private static Setup setup(JwtToken.Algorithm algorithm) throws Exception {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.setSecret(SECRET);
+        jwtToken.getSigning().setAlgorithm(algorithm);
+        jwtToken.getSigning().setKeyId("k1");
+
+        Key signingKey;
+        if (algorithm.isHmac()) {
+            signingKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        } else {
+            KeyPair keyPair = keyPair(algorithm);
+            signingKey = keyPair.getPrivate();
+            jwtToken.getSigning().setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+            jwtToken.getSigning().setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        }
+        TokenSigningKeys keys = new TokenSigningKeys(jwtToken);
+        JwtParser parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keys.resolver())
+                // التوكنات دي اتعملت بتواريخ ثابتة
+                .setClock(() -> new Date(ISSUED_AT * 1000))
+                .build();
+        return new Setup(algorithm, keys, parser, signingKey);
+    }
+
+    private static KeyPair keyPair(JwtToken.Algorithm algorithm) throws Exception {
+        if (algorithm == JwtToken.Algorithm.ES256) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        }
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static ByteArrayResource pem(String type, byte[] der) {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        return new ByteArrayResource(pem.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private record Setup(JwtToken.Algorithm algorithm, TokenSigningKeys keys, JwtParser parser, Key signingKey) {
+    }
+}
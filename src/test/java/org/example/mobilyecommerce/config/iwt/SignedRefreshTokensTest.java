@@ -0,0 +1,81 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SignedRefreshTokensTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant EXPIRES_AT = NOW.plus(Duration.ofDays(7));
+
+    private final SignedRefreshTokens tokens = tokens("test-secret");
+
+    @Test
+    void verifiesWhatItIssued() {
+        UUID familyId = UUID.randomUUID();
+        String token = tokens.issue(42L, familyId, 3, NOW, EXPIRES_AT);
+
+        assertThat(tokens.isSigned(token)).isTrue();
+        assertThat(tokens.verify(token, NOW.plusSeconds(60)))
+                .contains(new SignedRefreshTokens.Payload(42L, familyId, 3, NOW, EXPIRES_AT));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        String token = tokens.issue(42L, UUID.randomUUID(), 0, NOW, EXPIRES_AT);
+
+        assertThat(tokens.verify(token, EXPIRES_AT)).isEmpty();
+        assertThat(tokens.verify(token, EXPIRES_AT.plusSeconds(1))).isEmpty();
+    }
+
+    @Test
+    void rejectsChangedPayload() {
+        String token = tokens.issue(42L, UUID.randomUUID(), 0, NOW, EXPIRES_AT);
+        String forged = tokens.issue(43L, UUID.randomUUID(), 0, NOW, EXPIRES_AT);
+
+        // payload بتاع توكن تاني مع الـ MAC بتاع الأول
+        String spliced = forged.substring(0, forged.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        assertThat(tokens.verify(spliced, NOW)).isEmpty();
+    }
+
+    @Test
+    void rejectsChangedMac() {
+        String token = tokens.issue(42L, UUID.randomUUID(), 0, NOW, EXPIRES_AT);
+        int separator = token.lastIndexOf('.');
+        byte[] mac = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        mac[0] ^= 1;
+
+        String tampered = token.substring(0, separator + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(mac);
+
+        assertThat(tokens.verify(tampered, NOW)).isEmpty();
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        String token = tokens("other-secret").issue(42L, UUID.randomUUID(), 0, NOW, EXPIRES_AT);
+
+        assertThat(tokens.verify(token, NOW)).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThat(tokens.isSigned("ABCD-EFGH-IJKL-MNOP")).isFalse();
+        assertThat(tokens.verify("ABCD-EFGH-IJKL-MNOP", NOW)).isEmpty();
+        assertThat(tokens.verify("r1.", NOW)).isEmpty();
+        assertThat(tokens.verify("r1.AAAA", NOW)).isEmpty();
+        assertThat(tokens.verify("r1.***.***", NOW)).isEmpty();
+    }
+
+    private static SignedRefreshTokens tokens(String secret) {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.setSecret(secret);
+        return new SignedRefreshTokens(jwtToken);
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.mobilyecommerce.config.iwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.model.UserRole;
+import org.example.mobilyecommerce.repository.UserRepository;
+import org.example.mobilyecommerce.service.TokenStore;
+import org.example.mobilyecommerce.service.impl.TokenEpochServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link TokenHandler#checkToken} with the real caches and epoch service; only the database is mocked.
+ */
+class TokenHandlerTest {
+
+    private static final AuthenticatedUser USER = AuthenticatedUser.of(42L, "mohamed", List.of(UserRole.CUSTOMER));
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenStore tokenStore = mock(TokenStore.class);
+    /** The committed {@code token_epoch} column. */
+    private final AtomicLong committedEpoch = new AtomicLong();
+    /** Epoch bumps of the open transaction, applied on commit. */
+    private final AtomicLong pendingBumps = new AtomicLong();
+
+    private TokenEpochServiceImpl tokenEpochService;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findTokenEpochById(42L)).thenAnswer(invocation -> Optional.of(committedEpoch.get()));
+        when(userRepository.incrementTokenEpoch(42L)).thenAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                pendingBumps.incrementAndGet();
+            } else {
+                committedEpoch.incrementAndGet();
+            }
+            return 1;
+        });
+        when(tokenStore.findAccessToken(any(), any())).thenReturn(Optional.of(Token.builder()
+                .expiryDate(Instant.now().plus(Duration.ofMinutes(15)))
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void repeatedChecksAreServedFromCache() {
+        TokenHandler handler = handler(Duration.ofMinutes(2));
+        String token = handler.createAccessToken(USER);
+
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isEqualTo(USER);
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isEqualTo(USER);
+
+        verify(tokenStore, times(1)).findAccessToken(any(), any());
+    }
+
+    @Test
+    void cachedTokenIsRejectedAfterRevokeAll() {
+        TokenHandler handler = handler(Duration.ofMinutes(2));
+        String token = handler.createAccessToken(USER);
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNotNull();
+
+        tokenEpochService.revokeAll(42L);
+
+        // الـ entry لسه في الـ VerifiedTokenCache والـ row لسه في الـ store - الـ epoch لوحده كفاية
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNull();
+    }
+
+    @Test
+    void tokenFromClaimsCacheIsRejectedAfterRevokeAll() {
+        // ttl صفر: كل check بيعدي على الـ VerifiedClaimsCache والـ store
+        TokenHandler handler = handler(Duration.ZERO);
+        String token = handler.createAccessToken(USER);
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNotNull();
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNotNull();
+
+        tokenEpochService.revokeAll(42L);
+
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNull();
+        assertThat(handler.createAccessToken(USER)).satisfies(fresh ->
+                assertThat(handler.checkToken(fresh, "10.0.0.1", "curl/8.0")).isEqualTo(USER));
+    }
+
+    @Test
+    void tokenCheckedDuringLogoutIsRejectedOnceItCommits() {
+        TokenHandler handler = handler(Duration.ofMinutes(2));
+        String token = handler.createAccessToken(USER);
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNotNull();
+
+        // نفس خطوات الـ logout جوه transaction مفتوحة
+        TransactionSynchronizationManager.initSynchronization();
+        tokenEpochService.revokeAll(42L);
+        verifiedTokenCache.invalidateUser(42L);
+
+        // طلب تاني قبل الـ commit لسه شايف الـ epoch القديم وبيرجّع التوكن للـ cache
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNotNull();
+
+        commit();
+
+        assertThat(handler.checkToken(token, "10.0.0.1", "curl/8.0")).isNull();
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private TokenHandler handler(Duration verificationTtl) {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.setSecret("test-secret-".repeat(6));
+        jwtToken.setAccessTime(Duration.ofMinutes(15));
+        jwtToken.getVerificationCache().setTtl(verificationTtl);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenEpochService = new TokenEpochServiceImpl(userRepository, jwtToken, meterRegistry);
+        verifiedTokenCache = new VerifiedTokenCache(jwtToken, meterRegistry);
+        return new TokenHandler(jwtToken, tokenStore, verifiedTokenCache,
+                new VerifiedClaimsCache(jwtToken, meterRegistry), tokenEpochService, new TokenSigningKeys(jwtToken));
+    }
+
+    private void commit() {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        committedEpoch.addAndGet(pendingBumps.getAndSet(0));
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
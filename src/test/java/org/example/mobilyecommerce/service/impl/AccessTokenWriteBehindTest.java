@@ -0,0 +1,125 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccessTokenWriteBehindTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    /** Every batch handed to the database, in order. */
+    private final List<List<Token>> inserts = new ArrayList<>();
+    private final User user = new User();
+    private AccessTokenWriteBehind writeBehind;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        user.setId(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            inserts.add(List.copyOf(invocation.<Collection<Token>>getArgument(1)));
+            return new int[0][];
+        });
+
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.getWriteBehind().setEnabled(true);
+        jwtToken.getWriteBehind().setQueueCapacity(1);
+        jwtToken.getWriteBehind().setBatchSize(10);
+        // الـ flush الدوري مش هيلحق يشتغل جوه الـ test
+        jwtToken.getWriteBehind().setFlushInterval(Duration.ofHours(1));
+        writeBehind = new AccessTokenWriteBehind(jwtToken, jdbcTemplate, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        writeBehind.stop();
+    }
+
+    @Test
+    void queuesTokenUntilFlushed() throws InterruptedException {
+        Token token = token();
+        writeBehind.submit(TokenDigest.of("queued"), token);
+
+        assertThat(writeBehind.findPending(TokenDigest.of("queued"))).contains(token);
+        assertThat(inserts).isEmpty();
+
+        writeBehind.stop();
+
+        assertThat(inserts).containsExactly(List.of(token));
+        assertThat(writeBehind.findPending(TokenDigest.of("queued"))).isEmpty();
+    }
+
+    @Test
+    void writesSynchronouslyWhenQueueIsFull() {
+        Token queued = token();
+        Token overflow = token();
+        writeBehind.submit(TokenDigest.of("queued"), queued);
+        writeBehind.submit(TokenDigest.of("overflow"), overflow);
+
+        assertThat(inserts).containsExactly(List.of(overflow));
+        assertThat(writeBehind.findPending(TokenDigest.of("overflow"))).isEmpty();
+        assertThat(writeBehind.findPending(TokenDigest.of("queued"))).contains(queued);
+    }
+
+    @Test
+    void writesSynchronouslyOnceShutDown() throws InterruptedException {
+        writeBehind.stop();
+
+        Token token = token();
+        writeBehind.submit(TokenDigest.of("late"), token);
+
+        assertThat(inserts).containsExactly(List.of(token));
+        assertThat(writeBehind.findPending(TokenDigest.of("late"))).isEmpty();
+    }
+
+    @Test
+    void queuesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        writeBehind.submit(TokenDigest.of("in-tx"), token());
+
+        assertThat(writeBehind.findPending(TokenDigest.of("in-tx"))).isEmpty();
+
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(writeBehind.findPending(TokenDigest.of("in-tx"))).isPresent();
+    }
+
+    private Token token() {
+        return Token.builder()
+                .user(user)
+                .createdAt(Instant.now())
+                .expiryDate(Instant.now().plus(Duration.ofMinutes(15)))
+                .build();
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.TokenDigest;
+import org.example.mobilyecommerce.model.RefreshToken;
+import org.example.mobilyecommerce.model.Token;
+import org.example.mobilyecommerce.model.User;
+import org.example.mobilyecommerce.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalTokenStoreTest {
+
+    /** Header plus payload of a record without ip and user agent. */
+    private static final int BARE_RECORD_SIZE = 8 + 62;
+
+    @TempDir
+    Path directory;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final User user = new User();
+    private LocalTokenStore store;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        user.setId(1L);
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        store.close();
+    }
+
+    @Test
+    void replaysTokensAfterRestart() {
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(1)).truncatedTo(ChronoUnit.MILLIS);
+        store.saveAccessToken(TokenDigest.of("access"), Token.builder()
+                .user(user)
+                .createdAt(Instant.now())
+                .expiryDate(expiresAt)
+                .ipAddress("10.0.0.1")
+                .userAgent("curl/8.0")
+                .build());
+        store.saveRefreshToken(TokenDigest.of("refresh"), refreshToken(Duration.ofDays(7)));
+
+        reopen();
+
+        Token access = store.findAccessToken(TokenDigest.of("access"), Instant.now()).orElseThrow();
+        assertThat(access.getUser().getId()).isEqualTo(1L);
+        assertThat(access.getExpiryDate()).isEqualTo(expiresAt);
+        assertThat(access.getIpAddress()).isEqualTo("10.0.0.1");
+        assertThat(access.getUserAgent()).isEqualTo("curl/8.0");
+        assertThat(store.findRefreshToken(TokenDigest.of("refresh"), Instant.now())).isPresent();
+        assertThat(store.findAccessToken(TokenDigest.of("refresh"), Instant.now())).isEmpty();
+    }
+
+    @Test
+    void dropsTornTailAndAppendsOverIt() throws IOException {
+        saveAccess("first", Duration.ofHours(1));
+        saveAccess("second", Duration.ofHours(1));
+        store.close();
+
+        // بنبوّظ الـ payload بتاع الـ record التاني كأن الكتابة اتقطعت في النص
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), BARE_RECORD_SIZE + 8 + 40);
+        }
+        store = open();
+
+        assertThat(store.findAccessToken(TokenDigest.of("first"), Instant.now())).isPresent();
+        assertThat(store.findAccessToken(TokenDigest.of("second"), Instant.now())).isEmpty();
+
+        saveAccess("third", Duration.ofHours(1));
+        reopen();
+
+        assertThat(store.findAccessToken(TokenDigest.of("first"), Instant.now())).isPresent();
+        assertThat(store.findAccessToken(TokenDigest.of("third"), Instant.now())).isPresent();
+    }
+
+    @Test
+    void rollsToNewSegmentWhenFull() throws IOException {
+        int count = fillUntilRoll("filler-", Duration.ofHours(1));
+        saveAccess("next", Duration.ofHours(1));
+
+        assertThat(segmentCount()).isEqualTo(2);
+        assertThat(segmentFiles()).hasSize(2);
+
+        reopen();
+
+        assertThat(segmentCount()).isEqualTo(2);
+        assertThat(store.findAccessToken(TokenDigest.of("filler-0"), Instant.now())).isPresent();
+        assertThat(store.findAccessToken(TokenDigest.of("filler-" + (count - 1)), Instant.now())).isPresent();
+        assertThat(store.findAccessToken(TokenDigest.of("next"), Instant.now())).isPresent();
+    }
+
+    @Test
+    void tombstoneSurvivesCompactionOfItsSegment() throws IOException {
+        // segment 1: الـ refresh token ومعاه توكنات عايشة، فمش هيتعمله compaction
+        store.saveRefreshToken(TokenDigest.of("refresh"), refreshToken(Duration.ofDays(7)));
+        fillUntilRoll("long-", Duration.ofDays(1));
+
+        // segment 2: الـ tombstone وسط توكنات هتخلص قبل الـ cleanup
+        assertThat(store.deleteRefreshTokens(1L)).isEqualTo(1);
+        fillUntilRoll("short-", Duration.ofMinutes(1));
+        assertThat(segmentCount()).isEqualTo(3);
+
+        store.purgeExpired(Instant.now().plus(Duration.ofMinutes(10)));
+
+        assertThat(segmentCount()).isEqualTo(2);
+        reopen();
+
+        assertThat(store.findAccessToken(TokenDigest.of("long-0"), Instant.now())).isPresent();
+        assertThat(store.findRefreshToken(TokenDigest.of("refresh"), Instant.now())).isEmpty();
+    }
+
+    @Test
+    void rolledBackDeleteKeepsRefreshTokens() {
+        store.saveRefreshToken(TokenDigest.of("refresh"), refreshToken(Duration.ofDays(7)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(store.deleteRefreshTokens(1L)).isEqualTo(1);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(store.findRefreshToken(TokenDigest.of("refresh"), Instant.now())).isPresent();
+        reopen();
+        assertThat(store.findRefreshToken(TokenDigest.of("refresh"), Instant.now())).isPresent();
+    }
+
+    @Test
+    void committedDeleteRemovesTokensSavedInTheSameTransaction() {
+        store.saveRefreshToken(TokenDigest.of("before"), refreshToken(Duration.ofDays(7)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        store.saveRefreshToken(TokenDigest.of("during"), refreshToken(Duration.ofDays(7)));
+        store.deleteRefreshTokens(1L);
+
+        assertThat(store.findRefreshToken(TokenDigest.of("before"), Instant.now())).isPresent();
+
+        commit();
+
+        assertThat(store.findRefreshToken(TokenDigest.of("before"), Instant.now())).isEmpty();
+        assertThat(store.findRefreshToken(TokenDigest.of("during"), Instant.now())).isEmpty();
+        reopen();
+        assertThat(store.findRefreshToken(TokenDigest.of("before"), Instant.now())).isEmpty();
+        assertThat(store.findRefreshToken(TokenDigest.of("during"), Instant.now())).isEmpty();
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private LocalTokenStore open() {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.getStore().getLocal().setDirectory(directory.toString());
+        jwtToken.getStore().getLocal().setSegmentSize(DataSize.ofMegabytes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        return new LocalTokenStore(jwtToken, userRepository, meterRegistry);
+    }
+
+    private void reopen() {
+        store.close();
+        store = open();
+    }
+
+    private void commit() {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private void saveAccess(String value, Duration ttl) {
+        store.saveAccessToken(TokenDigest.of(value), Token.builder()
+                .user(user)
+                .createdAt(Instant.now())
+                .expiryDate(Instant.now().plus(ttl))
+                .build());
+    }
+
+    private RefreshToken refreshToken(Duration ttl) {
+        return RefreshToken.builder()
+                .user(user)
+                .createdAt(Instant.now())
+                .expiryDate(Instant.now().plus(ttl))
+                .build();
+    }
+
+    /**
+     * Saves access tokens until the (possibly new) active segment is full and the last one lands in a new segment.
+     *
+     * @return number of tokens saved
+     */
+    private int fillUntilRoll(String prefix, Duration ttl) {
+        saveAccess(prefix + 0, ttl);
+        double segments = segmentCount();
+        int i = 1;
+        while (segmentCount() == segments) {
+            saveAccess(prefix + i++, ttl);
+        }
+        return i;
+    }
+
+    private double segmentCount() {
+        return meterRegistry.get("token.store.local.segments").gauge().value();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.mobilyecommerce.service.impl;
+
+import org.example.mobilyecommerce.controller.vm.AuthResponseVm;
+import org.example.mobilyecommerce.exception.TokenExpiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshCoalescerTest {
+
+    private final RefreshCoalescer coalescer = new RefreshCoalescer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger issued = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsShareOneIssuance() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<AuthResponseVm> first = executor.submit(() -> coalescer.coalesce("refresh", () -> {
+            started.countDown();
+            await(release);
+            return issue();
+        }));
+        started.await();
+        Future<AuthResponseVm> second = executor.submit(() -> coalescer.coalesce("refresh", this::issue));
+        // الطلب التاني لازم يكون مستني قبل ما الأول يخلص
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(issued).hasValue(1);
+    }
+
+    @Test
+    void callAfterCompletionIssuesAgain() {
+        AuthResponseVm first = coalescer.coalesce("refresh", this::issue);
+        AuthResponseVm second = coalescer.coalesce("refresh", this::issue);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(issued).hasValue(2);
+    }
+
+    @Test
+    void differentTokensAreNotShared() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<AuthResponseVm> first = executor.submit(() -> coalescer.coalesce("refresh-a", () -> {
+            started.countDown();
+            await(release);
+            return issue();
+        }));
+        started.await();
+        AuthResponseVm other = coalescer.coalesce("refresh-b", this::issue);
+        release.countDown();
+
+        assertThat(other).isNotSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(issued).hasValue(2);
+    }
+
+    @Test
+    void failureReachesWaitingCallersAndIsNotKept() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<AuthResponseVm> first = executor.submit(() -> coalescer.coalesce("refresh", () -> {
+            started.countDown();
+            await(release);
+            throw new TokenExpiredException("Refresh token is invalid or expired");
+        }));
+        started.await();
+        Future<AuthResponseVm> second = executor.submit(() -> coalescer.coalesce("refresh", this::issue));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TokenExpiredException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TokenExpiredException.class);
+        assertThat(issued).hasValue(0);
+
+        assertThat(coalescer.coalesce("refresh", this::issue)).isNotNull();
+        assertThat(issued).hasValue(1);
+    }
+
+    private AuthResponseVm issue() {
+        int n = issued.incrementAndGet();
+        return new AuthResponseVm("access-" + n, "refresh-" + n);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
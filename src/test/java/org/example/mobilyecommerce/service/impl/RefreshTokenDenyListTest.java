@@ -0,0 +1,111 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.SignedRefreshTokens;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenDenyListTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsRevocationsAfterRestart() throws InterruptedException {
+        Instant now = Instant.now();
+        UUID revokedFamily = UUID.randomUUID();
+
+        RefreshTokenDenyList denyList = start();
+        denyList.revokeFamily(revokedFamily, now.plus(Duration.ofDays(1)));
+        denyList.revokeUser(7L, now);
+        denyList.stop();
+
+        RefreshTokenDenyList reloaded = start();
+        try {
+            assertThat(reloaded.isRevoked(payload(1L, revokedFamily, now.minusSeconds(60)))).isTrue();
+            assertThat(reloaded.isRevoked(payload(1L, UUID.randomUUID(), now.minusSeconds(60)))).isFalse();
+            // الـ cutoff بيلغي اللي اتصدر لحد الـ logout بس
+            assertThat(reloaded.isRevoked(payload(7L, UUID.randomUUID(), now.minusSeconds(60)))).isTrue();
+            assertThat(reloaded.isRevoked(payload(7L, UUID.randomUUID(), now.plusSeconds(60)))).isFalse();
+        } finally {
+            reloaded.stop();
+        }
+    }
+
+    @Test
+    void dropsEntriesNoTokenCanMatchAnymore() throws InterruptedException {
+        Instant now = Instant.now();
+        UUID expiredFamily = UUID.randomUUID();
+
+        RefreshTokenDenyList denyList = start();
+        denyList.revokeFamily(expiredFamily, now.minusSeconds(1));
+        denyList.revokeUser(7L, now.minus(Duration.ofDays(8)));
+        denyList.stop();
+
+        RefreshTokenDenyList reloaded = start();
+        try {
+            assertThat(reloaded.isRevoked(payload(1L, expiredFamily, now.minus(Duration.ofDays(9))))).isFalse();
+            assertThat(reloaded.isRevoked(payload(7L, UUID.randomUUID(), now.minus(Duration.ofDays(9))))).isFalse();
+        } finally {
+            reloaded.stop();
+        }
+    }
+
+    @Test
+    void reloadsGenerationsAfterRestart() throws InterruptedException {
+        Instant now = Instant.now();
+        UUID refreshed = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+
+        RefreshTokenDenyList denyList = start();
+        denyList.advance(refreshed, 2, now.plus(Duration.ofDays(1)));
+        denyList.advance(refreshed, 1, now.plus(Duration.ofDays(1)));
+        denyList.advance(expired, 5, now.minusSeconds(1));
+        denyList.stop();
+
+        RefreshTokenDenyList reloaded = start();
+        try {
+            // الجيل الأحدث بس هو اللي بيتحسب - advance لجيل أقدم ما بيرجّعوش
+            assertThat(reloaded.isSuperseded(payload(1L, refreshed, 1, now))).isTrue();
+            assertThat(reloaded.isSuperseded(payload(1L, refreshed, 2, now))).isFalse();
+            assertThat(reloaded.isSuperseded(payload(1L, expired, 0, now))).isFalse();
+            assertThat(reloaded.isSuperseded(payload(1L, UUID.randomUUID(), 0, now))).isFalse();
+        } finally {
+            reloaded.stop();
+        }
+    }
+
+    @Test
+    void refusesToStartFromForeignFile() throws Exception {
+        Files.write(directory.resolve("deny-list.bin"), new byte[]{1, 2, 3, 4});
+
+        assertThatThrownBy(this::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    private RefreshTokenDenyList start() {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.setRefreshTime(Duration.ofDays(7));
+        jwtToken.getSignedRefresh().setDenyListFile(directory.resolve("deny-list.bin").toString());
+        RefreshTokenDenyList denyList = new RefreshTokenDenyList(jwtToken, new SimpleMeterRegistry());
+        denyList.start();
+        return denyList;
+    }
+
+    private static SignedRefreshTokens.Payload payload(Long userId, UUID familyId, Instant issuedAt) {
+        return payload(userId, familyId, 0, issuedAt);
+    }
+
+    private static SignedRefreshTokens.Payload payload(Long userId, UUID familyId, long generation, Instant issuedAt) {
+        return new SignedRefreshTokens.Payload(userId, familyId, generation, issuedAt, issuedAt.plus(Duration.ofDays(7)));
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.mobilyecommerce.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.mobilyecommerce.config.iwt.JwtToken;
+import org.example.mobilyecommerce.config.iwt.SignedRefreshTokens;
+import org.example.mobilyecommerce.config.iwt.TokenHandler;
+import org.example.mobilyecommerce.model.User;
+import org.example.mobilyecommerce.repository.UserRepository;
+import org.example.mobilyecommerce.service.TokenStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceImplTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final User user = new User();
+
+    private SignedRefreshTokens signedRefreshTokens;
+    private RefreshTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        JwtToken jwtToken = new JwtToken();
+        jwtToken.setSecret("test-secret");
+        jwtToken.setRefreshTime(Duration.ofDays(7));
+        signedRefreshTokens = new SignedRefreshTokens(jwtToken);
+        RefreshTokenDenyList denyList = new RefreshTokenDenyList(jwtToken, new SimpleMeterRegistry());
+        service = new RefreshTokenServiceImpl(mock(TokenStore.class), mock(TokenHandler.class), signedRefreshTokens,
+                denyList, userRepository);
+
+        user.setId(42L);
+        when(userRepository.findById(42L)).thenReturn(Optional.of(user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void acceptsFreshToken() {
+        String token = issue(UUID.randomUUID());
+
+        assertThat(service.findValid(token)).hasValueSatisfying(found -> assertThat(found.getUser()).isSameAs(user));
+    }
+
+    @Test
+    void rotatesIntoNextGenerationOfSameFamily() {
+        UUID familyId = UUID.randomUUID();
+        String token = issue(familyId);
+        SignedRefreshTokens.Payload original = signedRefreshTokens.verify(token, Instant.now()).orElseThrow();
+
+        String rotated = service.rotate(token, user);
+
+        assertThat(signedRefreshTokens.verify(rotated, Instant.now())).hasValueSatisfying(payload -> {
+            assertThat(payload.generation()).isEqualTo(1);
+            assertThat(payload.familyId()).isEqualTo(familyId);
+            assertThat(payload.expiresAt()).isEqualTo(original.expiresAt());
+        });
+        assertThat(service.findValid(rotated)).isPresent();
+    }
+
+    @Test
+    void rejectsReusedTokenAndRevokesItsFamily() {
+        UUID familyId = UUID.randomUUID();
+        String used = issue(familyId);
+        String successor = service.rotate(used, user);
+
+        assertThat(service.findValid(used)).isEmpty();
+        // الـ successor اللي مع العميل الحقيقي اتلغى هو كمان
+        assertThat(service.findValid(successor)).isEmpty();
+    }
+
+    @Test
+    void refreshingOneLoginLeavesOtherLoginsAlone() {
+        String phone = issue(UUID.randomUUID());
+        String laptop = issue(UUID.randomUUID());
+
+        String nextPhone = service.rotate(phone, user);
+        String nextLaptop = service.rotate(laptop, user);
+
+        assertThat(service.findValid(nextPhone)).isPresent();
+        assertThat(service.findValid(nextLaptop)).isPresent();
+    }
+
+    @Test
+    void usedTokenStaysValidUntilRefreshCommits() {
+        String token = issue(UUID.randomUUID());
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.rotate(token, user);
+        assertThat(service.findValid(token)).isPresent();
+
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(service.findValid(token)).isEmpty();
+    }
+
+    @Test
+    void leavesStoredTokensAlone() {
+        assertThat(service.rotate("ABCD-EFGH-IJKL-MNOP", user)).isEqualTo("ABCD-EFGH-IJKL-MNOP");
+    }
+
+    private String issue(UUID familyId) {
+        Instant now = Instant.now();
+        return signedRefreshTokens.issue(42L, familyId, 0, now, now.plus(Duration.ofDays(7)));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.mobilyecommerce.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.example.mobilyecommerce.config.UserImport;
+import org.example.mobilyecommerce.service.UserImportServiceInterface.Format;
+import org.example.mobilyecommerce.service.UserImportServiceInterface.ImportReport;
+import org.example.mobilyecommerce.service.UserImportServiceInterface.RowFailure;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserImportServiceImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private UserImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        // IGNORECASE زي الـ collation الافتراضي بتاع MySQL
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:user-import-" + UUID.randomUUID()
+                + ";MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // الـ phone unique هنا بس: constraint الـ import ما بيشيكش عليه قبل الـ insert، زي تسجيل في نفس اللحظة
+        jdbcTemplate.execute("CREATE TABLE user_eco (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "username VARCHAR(50) NOT NULL UNIQUE, password VARCHAR(100) NOT NULL, "
+                + "email VARCHAR(100) NOT NULL UNIQUE, phone VARCHAR(20) UNIQUE, token_epoch BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE role (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "role VARCHAR(20) NOT NULL, user_id BIGINT NOT NULL REFERENCES user_eco(id))");
+
+        UserImport config = new UserImport();
+        config.setChunkSize(2);
+        config.setThreads(1);
+        service = new UserImportServiceImpl(jdbcTemplate, new NamedParameterJdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), new PasswordEncoder() {
+                    @Override
+                    public String encode(CharSequence rawPassword) {
+                        return "hashed:" + rawPassword;
+                    }
+
+                    @Override
+                    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                        return encode(rawPassword).equals(encodedPassword);
+                    }
+                }, new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void readsCsvColumnsByHeaderIncludingQuotedFields() {
+        ImportReport report = importUsers(Format.CSV, """
+                email,username,phone,password,roles
+                mo@example.com,"sayed, ""mo""\",01012345678,password1,admin|CUSTOMER
+                "ahmed@example.com",ahmed,01012345679,"pass,word2",
+                """);
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.failed()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT username FROM user_eco WHERE email = 'mo@example.com'",
+                String.class)).isEqualTo("sayed, \"mo\"");
+        assertThat(jdbcTemplate.queryForObject("SELECT password FROM user_eco WHERE username = 'ahmed'",
+                String.class)).isEqualTo("hashed:pass,word2");
+        assertThat(jdbcTemplate.queryForList("SELECT r.role FROM role r JOIN user_eco u ON u.id = r.user_id "
+                + "WHERE u.email = 'mo@example.com' ORDER BY r.role", String.class)).containsExactly("ADMIN", "CUSTOMER");
+        assertThat(jdbcTemplate.queryForList("SELECT r.role FROM role r JOIN user_eco u ON u.id = r.user_id "
+                + "WHERE u.username = 'ahmed'", String.class)).containsExactly("CUSTOMER");
+    }
+
+    @Test
+    void dropsDuplicatesOfExistingUsersAndWithinFile() {
+        jdbcTemplate.update("INSERT INTO user_eco (username, password, email, phone, token_epoch) "
+                + "VALUES ('existing', 'x', 'existing@example.com', '01000000000', 0)");
+
+        // chunk size 2: السطر 2 و 3 في chunk، و 4 و 5 في الـ chunk اللي بعده
+        ImportReport report = importUsers(Format.NDJSON, """
+                {"username":"first","email":"EXISTING@example.com","password":"password1","phone":"01011111111"}
+                {"username":"Existing","email":"new@example.com","password":"password1","phone":"01022222222"}
+                {"username":"second","email":"second@example.com","password":"password1","phone":"01033333333"}
+                {"username":"third","email":"Second@Example.com","password":"password1","phone":"01044444444"}
+                """);
+
+        assertThat(report.rows()).isEqualTo(4);
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failures()).containsExactly(
+                new RowFailure(1, "Email already exists: EXISTING@example.com"),
+                new RowFailure(2, "Username already exists: Existing"),
+                new RowFailure(4, "Email already exists: Second@Example.com"));
+    }
+
+    @Test
+    void duplicatesInsideOneChunkKeepTheFirstRow() {
+        ImportReport report = importUsers(Format.NDJSON, """
+                {"username":"same","email":"one@example.com","password":"password1","phone":"01011111111"}
+                {"username":"SAME","email":"two@example.com","password":"password1","phone":"01022222222"}
+                """);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failures()).containsExactly(new RowFailure(2, "Username already exists: SAME"));
+        assertThat(jdbcTemplate.queryForObject("SELECT email FROM user_eco", String.class)).isEqualTo("one@example.com");
+    }
+
+    @Test
+    void retriesRowByRowWhenBatchInsertFails() {
+        ImportReport report = importUsers(Format.NDJSON, """
+                {"username":"first","email":"first@example.com","password":"password1","phone":"01011111111"}
+                {"username":"second","email":"second@example.com","password":"password1","phone":"01011111111"}
+                """);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(report.failures()).singleElement().satisfies(failure -> assertThat(failure.line()).isEqualTo(2));
+        assertThat(jdbcTemplate.queryForList("SELECT username FROM user_eco", String.class)).containsExactly("first");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM role", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void reportsInvalidRowsAndKeepsGoing() {
+        ImportReport report = importUsers(Format.CSV, """
+                username,email,password,phone
+                ok-user,ok@example.com,password1,01011111111
+                x,bad-email,short,123
+
+                other,other@example.com,password1,01022222222
+                """);
+
+        assertThat(report.rows()).isEqualTo(3);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.failures()).extracting(RowFailure::line).containsExactly(3L);
+    }
+
+    private ImportReport importUsers(Format format, String content) {
+        return service.importUsers(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}